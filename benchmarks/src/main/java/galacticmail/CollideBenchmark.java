@@ -0,0 +1,45 @@
+package galacticmail;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single collision test, through the Collideable interface and directly on the EntityStore arrays.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class CollideBenchmark {
+    private EntityStore<Asteroid> store;
+    private Asteroid a;
+    private Asteroid b; // overlapping a
+    private Asteroid c; // far away from a
+
+    @Setup
+    public void setup() {
+        BufferedImage texture = new BufferedImage(50, 50, BufferedImage.TYPE_INT_ARGB);
+        Random rng = new Random(42);
+        store = new EntityStore<>(4);
+        a = new Asteroid(store, rng, texture, 100, 100);
+        b = new Asteroid(store, rng, texture, 120, 110);
+        c = new Asteroid(store, rng, texture, 900, 700);
+    }
+
+    @Benchmark
+    public boolean collideHit() { return Collideable.collide(a, b); }
+
+    @Benchmark
+    public boolean collideMiss() { return Collideable.collide(a, c); }
+
+    @Benchmark
+    public boolean storeCollideHit() { return store.collide(0, 1); }
+
+    @Benchmark
+    public boolean storeCollideMiss() { return store.collide(0, 2); }
+}
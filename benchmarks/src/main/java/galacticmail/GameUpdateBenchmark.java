@@ -0,0 +1,63 @@
+package galacticmail;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulation tick of a level. The rocket sits on its start position, so the level never ends
+ * and every tick moves and collides the full set of moons and asteroids.
+ * The level's own layout tops out at a screenful of moons and asteroids, so the fixture is spawned directly
+ * with as many as the level would ask for (5+level moons, 10+4*level asteroids), see populate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class GameUpdateBenchmark {
+    @Param({"1", "10", "50", "100", "200"})
+    public int level;
+
+    private Game game;
+
+    @Setup
+    public void setup() {
+        Audio.disable();
+        game = new Game(level, 0, new Random(42), null);
+        populate(game, level);
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() {
+        if (!game.isRunning())
+            throw new IllegalStateException("the level ended, the workload changed mid-run");
+    }
+
+    // replace the level's layout with 5+level moons and 10+4*level asteroids scattered over the screen
+    static void populate(Game game, int level) {
+        Assets assets = Assets.get();
+        EntityStore<Moon> moons = game.getMoons();
+        EntityStore<Asteroid> asteroids = game.getAsteroids();
+        Random rng = new Random(7);
+
+        moons.clear();
+        asteroids.clear();
+        for (int i = 0; i < 5 + level; i++)
+            Moon.spawn(moons, rng, assets.moon, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT, 8, 64, 64, 8);
+        for (int i = 0; i < 10 + 4*level; i++)
+            Asteroid.spawn(asteroids, rng, assets.asteroid, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT);
+
+        if (moons.size() != 5 + level || asteroids.size() != 10 + 4*level)
+            throw new IllegalStateException("level " + level + " fixture has " + moons.size() + " moons and "
+                    + asteroids.size() + " asteroids");
+    }
+
+    @Benchmark
+    public long update() {
+        game.update();
+        return game.getTicks();
+    }
+}
@@ -0,0 +1,70 @@
+package galacticmail;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering into an offscreen BufferedImage: a whole frame, a frame repainting only what changed, and just the sprites.
+ * The level sets the number of moons and asteroids drawn, see GameUpdateBenchmark.populate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RenderBenchmark {
+    @Param({"1", "50", "200"})
+    public int level;
+
+    private Game game;
+    private BufferedImage target;
+    private Graphics2D g;
+    private LayeredRenderer layered;
+
+    @Setup
+    public void setup() {
+        Audio.disable();
+        game = new Game(level, 0, new Random(42), null);
+        GameUpdateBenchmark.populate(game, level);
+        target = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+        layered = new LayeredRenderer(game, null);
+        layered.render(g, 0.5f); // first frame is always drawn in full
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage frame() {
+        game.render(g, 0.5f);
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage layered() {
+        layered.render(g, 0.5f);
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage sprites() {
+        EntityStore<Asteroid> asteroids = game.getAsteroids();
+        EntityStore<Moon> moons = game.getMoons();
+
+        for (int i = 0; i < asteroids.size(); i++)
+            asteroids.get(i).render(g, 0.5f, game.getCamera());
+        for (int i = 0; i < moons.size(); i++)
+            moons.get(i).render(g, 0.5f, game.getCamera());
+        game.getPlayer().render(g, 0.5f, game.getCamera());
+
+        return target;
+    }
+}
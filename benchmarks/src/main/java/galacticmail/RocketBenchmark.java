@@ -0,0 +1,40 @@
+package galacticmail;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rocket movement while flying, including a small turn every tick.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class RocketBenchmark {
+    private Rocket rocket;
+
+    @Setup
+    public void setup() {
+        Audio.disable();
+        BufferedImage texture = new BufferedImage(48, 48, BufferedImage.TYPE_INT_ARGB);
+        rocket = new Rocket(texture, texture);
+        rocket.spawn(Game.WIDTH/2, Game.HEIGHT/2);
+        rocket.takeoff();
+    }
+
+    @Benchmark
+    public float update() {
+        rocket.rotate(1);
+        rocket.update();
+        return rocket.getX();
+    }
+
+    @Benchmark
+    public float velocity() {
+        return rocket.getVX() + rocket.getVY();
+    }
+}
@@ -0,0 +1,78 @@
+package galacticmail;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing many sprites into an offscreen BufferedImage: one render call per entity, against a SpriteBatch
+ * drawing them all out of the SpriteAtlas. Both produce the same image.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class SpriteBenchmark {
+    @Param({"100", "1000", "5000"})
+    public int sprites;
+
+    private Game game;
+    private Camera camera;
+    private SpriteBatch batch;
+    private BufferedImage target;
+    private Graphics2D g;
+
+    @Setup
+    public void setup() {
+        Audio.disable();
+        Assets assets = Assets.get();
+        game = new Game(1, 0, new Random(42), null);
+        Random rng = new Random(7);
+
+        // mostly asteroids (one per rotated frame and then some), a moon for every ten
+        for (int i = 0; i < sprites; i++) {
+            float x = rng.nextFloat()*Game.WIDTH, y = rng.nextFloat()*Game.HEIGHT;
+            if (i % 10 == 0)
+                Moon.spawn(game.getMoons(), rng, assets.moon, x, y, 8, 64, 64, 8);
+            else
+                Asteroid.spawn(game.getAsteroids(), rng, assets.asteroid, x, y);
+        }
+
+        camera = game.getCamera();
+        camera.frame(0.5f);
+        batch = new SpriteBatch();
+        target = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = target.createGraphics();
+        batch.render(g, game, 0.5f, camera); // fill the atlas
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage perObject() {
+        EntityStore<Asteroid> asteroids = game.getAsteroids();
+        EntityStore<Moon> moons = game.getMoons();
+
+        for (int i = 0; i < asteroids.size(); i++)
+            asteroids.get(i).render(g, 0.5f, camera);
+        for (int i = 0; i < moons.size(); i++)
+            moons.get(i).render(g, 0.5f, camera);
+        game.getPlayer().render(g, 0.5f, camera);
+
+        return target;
+    }
+
+    @Benchmark
+    public BufferedImage batched() {
+        batch.render(g, game, 0.5f, camera);
+        return target;
+    }
+}
@@ -0,0 +1,40 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssetsTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void loadedOnce() {
+        Assets assets = Assets.get();
+        assertSame(assets, Assets.get());
+
+        assertNotNull(assets.flying);
+        assertNotNull(assets.landed);
+        assertNotNull(assets.moon);
+        assertNotNull(assets.asteroid);
+        assertEquals(Game.WIDTH, assets.background.getWidth());
+        assertEquals(Game.HEIGHT, assets.background.getHeight());
+    }
+
+    @Test
+    void open() throws IOException {
+        try (InputStream in = Assets.open("Moon.png")) {
+            assertTrue(in.read() >= 0);
+        }
+        assertThrows(FileNotFoundException.class, () -> Assets.open("NoSuchImage.png"));
+    }
+}
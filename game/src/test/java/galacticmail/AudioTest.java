@@ -0,0 +1,58 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioTest {
+    private static final int THREADS = 8;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // everyone asking for a clip at once shares the one decode
+    @Test
+    void clipDecodedOnce() throws InterruptedException {
+        @SuppressWarnings("unchecked")
+        CompletableFuture<short[]>[] clips = new CompletableFuture[THREADS];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            int index = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                clips[index] = Audio.clip("Launch.mp3");
+            });
+            threads[t].start();
+        }
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+
+        for (int t = 1; t < THREADS; t++)
+            assertSame(clips[0], clips[t]);
+
+        short[] samples = clips[0].join();
+        assertNotNull(samples);
+        assertTrue(samples.length > 0);
+        assertEquals(0, samples.length % 2, "interleaved stereo");
+        assertSame(samples, Audio.clip("Launch.mp3").join());
+    }
+
+    @Test
+    void missingClipIsNull() {
+        assertNull(Audio.clip("NoSuchSound.mp3").join());
+    }
+}
@@ -0,0 +1,45 @@
+package galacticmail;
+
+/**
+ * A plain view over an EntityStore entity, for tests that don't need sprites.
+ */
+class Body implements Collideable {
+    private final EntityStore<Body> store;
+    private final int id;
+
+    Body(EntityStore<Body> store, float x, float y, float vx, float vy, float size) {
+        this.store = store;
+        this.id = store.add(this, x, y, vx, vy, size, size);
+    }
+
+    int getId() { return id; }
+
+    public float getX() { return store.x[store.slot(id)]; }
+    public float getY() { return store.y[store.slot(id)]; }
+    public float getVX() { return store.vx[store.slot(id)]; }
+    public float getVY() { return store.vy[store.slot(id)]; }
+    public float getWidth() { return store.width[store.slot(id)]; }
+    public float getHeight() { return store.height[store.slot(id)]; }
+
+    public void teleport(float x, float y) {
+        store.x[store.slot(id)] = x;
+        store.y[store.slot(id)] = y;
+    }
+
+    public void setVelocity(float vx, float vy) {
+        store.vx[store.slot(id)] = vx;
+        store.vy[store.slot(id)] = vy;
+    }
+
+    // a store of n bodies scattered over a world of the given size, sizes between 8 and 72
+    static EntityStore<Body> scatter(long seed, int n, float width, float height) {
+        java.util.Random rng = new java.util.Random(seed);
+        EntityStore<Body> store = new EntityStore<>(n);
+        store.setWorldSize(width, height);
+        for (int i = 0; i < n; i++) {
+            new Body(store, rng.nextFloat()*width, rng.nextFloat()*height,
+                    rng.nextFloat()*4 - 2, rng.nextFloat()*4 - 2, 8 + rng.nextInt(65));
+        }
+        return store;
+    }
+}
@@ -0,0 +1,59 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // a bot gets to steer the rocket, not to get hold of it
+    @Test
+    void controlsAreNotTheRocket() {
+        Game game = new Game(1, 0, new Random(1), null);
+        int[] acted = new int[1];
+        game.setBot((snapshot, controls) -> {
+            assertFalse(controls instanceof Rocket);
+            controls.rotate(5);
+            acted[0]++;
+        });
+        game.update();
+        game.update();
+
+        assertEquals(2, acted[0]);
+        assertEquals(10, game.getPlayer().getAngle());
+    }
+
+    // run i only depends on the batch seed and i, however many threads share the runs
+    // (and the autopilot is good enough that levels get won)
+    @Test
+    void batchIndependentOfThreads() {
+        BatchRunner one = new BatchRunner(11, 40, 3, 60*Game.TICKS_PER_SECOND, Autopilot::new);
+        BatchRunner four = new BatchRunner(11, 40, 3, 60*Game.TICKS_PER_SECOND, Autopilot::new);
+        one.run(1);
+        four.run(4);
+
+        assertEquals(one.getHash(), four.getHash());
+        assertEquals(one.getTotalTicks(), four.getTotalTicks());
+        for (int i = 0; i < one.getGames(); i++) {
+            assertEquals(one.getScore(i), four.getScore(i));
+            assertEquals(one.getLevel(i), four.getLevel(i));
+        }
+
+        int best = 0;
+        for (int i = 0; i < one.getGames(); i++)
+            best = Math.max(best, one.getLevel(i));
+        assertTrue(best > 1, "the autopilot should win a level now and then");
+
+        BatchRunner other = new BatchRunner(12, 40, 3, 60*Game.TICKS_PER_SECOND, Autopilot::new);
+        other.run(2);
+        assertNotEquals(one.getHash(), other.getHash());
+    }
+}
@@ -0,0 +1,81 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EntityStoreTest {
+    @Test
+    void removeMovesTheLastEntityIntoTheGap() {
+        EntityStore<Body> store = new EntityStore<>(4);
+        Body a = new Body(store, 1, 1, 0, 0, 8);
+        Body b = new Body(store, 2, 2, 0, 0, 8);
+        Body c = new Body(store, 3, 3, 0, 0, 8);
+
+        store.remove(store.slot(a.getId()));
+
+        assertEquals(2, store.size());
+        assertSame(c, store.get(0));
+        assertEquals(0, store.slot(c.getId()));
+        assertEquals(3, store.x[0]);
+        assertSame(b, store.get(1));
+        assertSame(a, store.parked());
+    }
+
+    @Test
+    void handlesStopResolvingOnceRemoved() {
+        EntityStore<Body> store = new EntityStore<>(2);
+        Body a = new Body(store, 1, 1, 0, 0, 8);
+        Body b = new Body(store, 2, 2, 0, 0, 8);
+        long ha = store.handle(store.slot(a.getId()));
+        long hb = store.handle(store.slot(b.getId()));
+
+        store.remove(store.slot(a.getId()));
+        assertEquals(-1, store.slotOf(ha));
+        assertEquals(0, store.slotOf(hb)); // b moved into a's slot, its handle follows it
+
+        // the view comes back as a new entity, the old handle still doesn't resolve
+        store.respawn(a.getId(), 5, 5, 0, 0, 8, 8);
+        long ha2 = store.handle(store.slot(a.getId()));
+        assertEquals(-1, store.slotOf(ha));
+        assertEquals(1, store.slotOf(ha2));
+        assertEquals(5, store.x[store.slotOf(ha2)]);
+        assertEquals(-1, store.slotOf(EntityStore.NONE));
+
+        store.clear();
+        assertEquals(-1, store.slotOf(ha2));
+        assertEquals(-1, store.slotOf(hb));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    void respawningALiveEntityFails() {
+        EntityStore<Body> store = new EntityStore<>(1);
+        Body a = new Body(store, 1, 1, 0, 0, 8);
+        assertThrows(IllegalStateException.class, () -> store.respawn(a.getId(), 0, 0, 0, 0, 8, 8));
+    }
+
+    @Test
+    void parkedViewsAreReusedBeforeGrowing() {
+        EntityStore<Body> store = new EntityStore<>(1);
+        for (int i = 0; i < 100; i++)
+            new Body(store, i, i, 0, 0, 8);
+        assertNull(store.parked());
+
+        // remove every other entity, then bring them all back
+        for (int i = store.size() - 1; i >= 0; i -= 2)
+            store.remove(i);
+        assertEquals(50, store.size());
+
+        while (store.parked() != null) {
+            Body body = store.parked();
+            store.respawn(body.getId(), -1, -1, 0, 0, 8, 8);
+        }
+        assertEquals(100, store.size());
+        for (int i = 0; i < store.size(); i++)
+            assertEquals(i, store.slot(store.get(i).getId()));
+    }
+}
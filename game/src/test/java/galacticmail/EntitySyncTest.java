@@ -0,0 +1,131 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EntitySyncTest {
+    private static final int TICKS = 3000;
+    private static final int LATE_JOIN = 1000;
+
+    // the server's asteroids bounce, wrap, get removed (leaving gaps in the ids) and respawn into parked views,
+    // growing from 40 to well past 64 ids. every client has to stay within MAX_ERROR of them on every tick
+    @Test
+    void asteroidsStayInSync() {
+        Random rng = new Random(5);
+        Assets assets = Assets.get();
+        EntityStore<Asteroid> store = new EntityStore<>(16);
+        SpatialGrid grid = new SpatialGrid(128, 128);
+        for (int k = 0; k < 40; k++)
+            Asteroid.spawn(store, rng, assets.asteroid, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT);
+
+        EntitySync<Asteroid> server = new EntitySync<>(false, new EntityStore<>(16));
+        EntitySync<Asteroid> client = new EntitySync<>(false, new EntityStore<>(16));
+        EntitySync<Asteroid> late = null;
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        int bounces = 0, removals = 0, respawns = 0, maxId = 0;
+
+        for (int tick = 0; tick < TICKS; tick++) {
+            store.update();
+            grid.update(store);
+            bounces += store.bouncePairs(grid);
+
+            if (tick % 7 == 3 && store.size() > 0) { // remove a few at random
+                store.remove(rng.nextInt(store.size()));
+                removals++;
+            }
+            if (tick % 5 == 0 && store.size() < 120) { // and spawn, into a parked view if there is one
+                if (store.parked() != null)
+                    respawns++;
+                Asteroid.spawn(store, rng, assets.asteroid, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT);
+            }
+            for (int i = 0; i < store.size(); i++)
+                maxId = Math.max(maxId, (int)store.handle(i));
+
+            buffer = frame(buffer, server, store, b -> server.write(b, store));
+            client.read(buffer.duplicate());
+            if (late != null)
+                late.read(buffer.duplicate());
+
+            if (tick == LATE_JOIN) {
+                late = new EntitySync<>(false, new EntityStore<>(1));
+                ByteBuffer all = frame(ByteBuffer.allocate(16), server, store, b -> server.writeAll(b, store));
+                late.readAll(all);
+            }
+
+            assertInSync(server, store, tick);
+            assertInSync(client, store, tick);
+            if (late != null)
+                assertInSync(late, store, tick);
+        }
+
+        assertTrue(bounces > 100, "bounces " + bounces);
+        assertTrue(removals > 100 && respawns > 100, "removals " + removals + ", respawns " + respawns);
+        assertTrue(maxId >= 64, "ids only went up to " + maxId);
+    }
+
+    @Test
+    void moonsStayInSync() {
+        Random rng = new Random(6);
+        Assets assets = Assets.get();
+        EntityStore<Moon> store = new EntityStore<>(4);
+        SpatialGrid grid = new SpatialGrid(128, 128);
+        for (int k = 0; k < 20; k++)
+            Moon.spawn(store, rng, assets.moon, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT, 8, 64, 64, 8);
+
+        EntitySync<Moon> server = new EntitySync<>(true, new EntityStore<>(4));
+        EntitySync<Moon> client = new EntitySync<>(true, new EntityStore<>(4));
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+
+        for (int tick = 0; tick < 1000; tick++) {
+            store.update();
+            grid.update(store);
+            store.bouncePairs(grid);
+            if (tick % 50 == 10)
+                store.remove(rng.nextInt(store.size()));
+            if (tick % 50 == 30)
+                Moon.spawn(store, rng, assets.moon, rng.nextFloat()*Game.WIDTH, rng.nextFloat()*Game.HEIGHT, 8, 64, 64, 8);
+
+            buffer = frame(buffer, server, store, b -> server.write(b, store));
+            client.read(buffer.duplicate());
+            assertInSync(client, store, tick);
+        }
+
+        for (int i = 0; i < store.size(); i++) { // the extra state came across with each moon
+            int s = client.getCopy().slot(findCopy(client, store, i));
+            assertEquals(store.get(i).getFrame(), client.getCopy().get(s).getFrame());
+            assertEquals(store.get(i).getScale(), client.getCopy().get(s).getScale());
+        }
+    }
+
+    private static <T extends Collideable> void assertInSync(EntitySync<T> sync, EntityStore<T> store, int tick) {
+        float error = sync.error(store);
+        assertTrue(error >= 0 && error <= EntitySync.MAX_ERROR, "tick " + tick + ": error " + error);
+    }
+
+    // the copy id of the client's copy of slot i, found by position since the mapping is private
+    private static int findCopy(EntitySync<Moon> sync, EntityStore<Moon> store, int i) {
+        EntityStore<Moon> copy = sync.getCopy();
+        for (int s = 0; s < copy.size(); s++) {
+            if (Math.abs(copy.x[s] - store.x[i]) <= EntitySync.MAX_ERROR
+                    && Math.abs(copy.y[s] - store.y[i]) <= EntitySync.MAX_ERROR)
+                return (int)copy.handle(s);
+        }
+        throw new AssertionError("no copy of slot " + i);
+    }
+
+    // write an update into buffer, made big enough the way RaceServer does it, and return it ready to read
+    private static <T extends Collideable> ByteBuffer frame(ByteBuffer buffer, EntitySync<T> sync, EntityStore<T> store,
+                                                            Consumer<ByteBuffer> write) {
+        buffer.clear();
+        buffer = Wire.ensure(buffer, 16 + 48*(store.size() + sync.getCopy().size()));
+        write.accept(buffer);
+        buffer.flip();
+        return buffer;
+    }
+}
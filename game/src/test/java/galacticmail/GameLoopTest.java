@@ -0,0 +1,48 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameLoopTest {
+    private static final int TICKS_PER_SECOND = 200;
+    private static final long RUN_MILLIS = 500;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // the simulation keeps to its own rate, however long the loop runs for (nothing is drawn here)
+    @Test
+    void ticksAtTheFixedRate() throws InterruptedException {
+        Game game = new Game(1, 0, new Random(1), null);
+        GameLoop loop = new GameLoop(game, TICKS_PER_SECOND, 0);
+        assertFalse(loop.isRendering());
+
+        long start = System.nanoTime();
+        loop.start();
+        Thread.sleep(RUN_MILLIS);
+        loop.stop();
+        long elapsed = System.nanoTime() - start;
+
+        long expected = elapsed*TICKS_PER_SECOND/1000000000L;
+        long ticks = game.getTicks();
+        assertTrue(ticks <= expected + 1, ticks + " ticks in " + elapsed/1000000 + "ms");
+        assertTrue(ticks >= expected/2, ticks + " ticks in " + elapsed/1000000 + "ms");
+    }
+
+    // frames are drawn part of the way between the last two ticks
+    @Test
+    void interpolatesBetweenTicks() {
+        assertEquals(10, Collideable.interpolate(10, 20, 0, 800));
+        assertEquals(12.5f, Collideable.interpolate(10, 20, 0.25f, 800));
+        assertEquals(20, Collideable.interpolate(10, 20, 1, 800));
+
+        // wrapped around the edge of the world: no sliding back across the screen
+        assertEquals(5, Collideable.interpolate(795, 5, 0.5f, 800));
+    }
+}
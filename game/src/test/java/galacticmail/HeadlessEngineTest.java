@@ -0,0 +1,53 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeadlessEngineTest {
+    private static final int LEVELS = 20;
+    private static final int MAX_TICKS = 5000;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void sameSeedSameHash() {
+        HeadlessEngine a = play(11, null, false);
+        HeadlessEngine b = play(11, null, false);
+
+        assertEquals(LEVELS, a.getLevelsPlayed());
+        assertEquals(a.getHash(), b.getHash());
+        assertEquals(a.getTotalTicks(), b.getTotalTicks());
+        assertEquals(a.getWins(), b.getWins());
+        assertTrue(a.getWins() > 0, "the autopilot finishes levels");
+
+        assertNotEquals(a.getHash(), play(12, null, false).getHash());
+    }
+
+    @Test
+    void sameHashOnMoreThreads() {
+        ParallelPhysics physics = new ParallelPhysics(4);
+        try {
+            assertEquals(play(13, null, false).getHash(), play(13, physics, false).getHash());
+        } finally {
+            physics.shutdown();
+        }
+    }
+
+    @Test
+    void sameSeedSameHashInAWorld() {
+        assertEquals(play(14, null, true).getHash(), play(14, null, true).getHash());
+    }
+
+    private static HeadlessEngine play(long seed, ParallelPhysics physics, boolean world) {
+        HeadlessEngine engine = new HeadlessEngine(seed, MAX_TICKS, physics);
+        if (world)
+            engine.setWorldSize(World.size(4, Game.WIDTH), World.size(4, Game.HEIGHT));
+        engine.play(LEVELS);
+        return engine;
+    }
+}
@@ -0,0 +1,103 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InputTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void aTapWithinOneTickStillTurns() {
+        Game game = new Game(1, 0, new Random(1), null);
+        float angle = game.getPlayer().getAngle();
+
+        game.getInput().offer(InputQueue.pressed(InputQueue.LEFT));
+        game.getInput().offer(InputQueue.released(InputQueue.LEFT));
+        game.update();
+        assertEquals(angle - 5, game.getPlayer().getAngle(), 1e-3);
+
+        game.update(); // released, so no more turning
+        assertEquals(angle - 5, game.getPlayer().getAngle(), 1e-3);
+    }
+
+    @Test
+    void heldKeysKeepTurningUntilReleased() {
+        Game game = new Game(1, 0, new Random(1), null);
+        float angle = game.getPlayer().getAngle();
+
+        game.getInput().offer(InputQueue.pressed(InputQueue.RIGHT));
+        for (int i = 0; i < 3; i++)
+            game.update();
+        game.getInput().offer(InputQueue.released(InputQueue.RIGHT));
+        game.update();
+        assertEquals(angle + 15, game.getPlayer().getAngle(), 1e-3);
+    }
+
+    @Test
+    void keysDontCarryOverIntoTheNextLevel() {
+        Game game = new Game(1, 0, new Random(1), null);
+        game.getInput().offer(InputQueue.pressed(InputQueue.RIGHT)); // held through the win/lose screen
+        game.update();
+        game.getInput().offer(InputQueue.pressed(InputQueue.LEFT));  // pressed on the win/lose screen
+
+        game.reset(2, 0);
+        float angle = game.getPlayer().getAngle();
+        game.update();
+        assertEquals(angle, game.getPlayer().getAngle(), 1e-3);
+    }
+
+    @Test
+    void fullQueueDropsEvents() {
+        InputQueue queue = new InputQueue(3); // rounded up to 4
+        for (int i = 0; i < 4; i++)
+            assertTrue(queue.offer(i));
+        assertFalse(queue.offer(4));
+
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(5));
+        queue.clear();
+        assertEquals(InputQueue.EMPTY, queue.poll());
+    }
+
+    // events arrive in order and only once, with another thread clearing the queue now and then
+    @Test
+    void pollAndClearFromDifferentThreads() throws InterruptedException {
+        InputQueue queue = new InputQueue(64);
+        int events = 20000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < events; ) {
+                if (queue.offer(i))
+                    i++;
+            }
+        });
+        Thread clearer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                queue.clear();
+                Thread.yield();
+            }
+        });
+        producer.start();
+        clearer.start();
+
+        int last = -1;
+        while (producer.isAlive() || last < events - 1) {
+            int event = queue.poll();
+            if (event != InputQueue.EMPTY) {
+                assertTrue(event > last, event + " after " + last);
+                last = event;
+            } else if (!producer.isAlive()) {
+                break;
+            }
+        }
+        clearer.interrupt();
+        clearer.join();
+        producer.join();
+    }
+}
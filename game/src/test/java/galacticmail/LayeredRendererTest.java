@@ -0,0 +1,68 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LayeredRendererTest {
+    private static final int TICKS = 1500;
+    private static final int RACE_TICKS = 200; // racers crash this far into each level, the player carries on
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // repainting only what changed leaves the screen looking the same as drawing every frame in full,
+    // through levels won and lost and racers leaving the race
+    @Test
+    void samePictureAsFullRedraw() { assertSamePicture(0); }
+
+    @Test
+    void samePictureWithRacers() { assertSamePicture(2); }
+
+    private static void assertSamePicture(int racers) {
+        Game game = new Game(1, 0, new Random(8), null);
+        game.setDrawn(true);
+        game.setBot(new Autopilot());
+        for (int r = 0; r < racers; r++)
+            game.addRacer();
+
+        LayeredRenderer renderer = new LayeredRenderer(game, null);
+        BufferedImage full = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage screen = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D fullGraphics = full.createGraphics();
+        Graphics2D screenGraphics = screen.createGraphics();
+
+        int messages = 0;
+        for (int tick = 0; tick < TICKS; tick++) {
+            if (!game.isRunning()) {
+                messages++;
+                game.reset(game.isWin() ? game.getLevel() + 1 : 1, 0);
+            }
+            game.update();
+            if (game.getTicks() == RACE_TICKS) {
+                for (int r = 1; r < game.getRacerCount(); r++)
+                    game.getRacer(r).crash();
+            }
+
+            float alpha = (tick % 3)/3.0f;
+            game.render(fullGraphics, alpha);
+            renderer.render(screenGraphics, alpha);
+            assertArrayEquals(pixels(full), pixels(screen), "tick " + tick);
+        }
+        fullGraphics.dispose();
+        screenGraphics.dispose();
+
+        assertTrue(messages > 0, "no level ended");
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,62 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LevelLayoutTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // a level prepared on the background thread is the same level nextLevel() would have generated itself
+    @Test
+    void preparedAheadIsTheSameLevel() {
+        Game ahead = new Game(1, 0, new Random(5), null);
+        Game inPlace = new Game(1, 0, new Random(5), null);
+        ahead.setBatchedSprites(true);
+
+        Random keys = new Random(9);
+        for (int levels = 0; levels < 10; ) {
+            for (int k = keys.nextInt(3); k > 0; k--) {
+                int key = keys.nextInt(3); // LEFT, RIGHT or LAUNCH
+                int event = keys.nextBoolean() ? InputQueue.pressed(key) : InputQueue.released(key);
+                ahead.getInput().offer(event);
+                inPlace.getInput().offer(event);
+            }
+            ahead.update();
+            inPlace.update();
+            assertEquals(inPlace.isRunning(), ahead.isRunning());
+            if (!ahead.isRunning()) {
+                ahead.prepareNextLevel();
+                ahead.nextLevel();
+                inPlace.nextLevel();
+                levels++;
+            }
+            assertEquals(inPlace.stateHash(), ahead.stateHash());
+        }
+    }
+
+    // the sprites packed ahead of time keep their regions, so the first frame adds nothing to the atlas
+    @Test
+    void regionsCarriedThroughApply() {
+        LevelLayout layout = new LevelLayout();
+        layout.generate(new Random(3), 6, false, true, true);
+        int packed = SpriteAtlas.size();
+
+        EntityStore<Moon> moons = new EntityStore<>(16);
+        EntityStore<Asteroid> asteroids = new EntityStore<>(64);
+        layout.apply(moons, asteroids);
+        assertTrue(moons.size() > 0 && asteroids.size() > 0);
+        assertEquals(-1, layout.getLevel());
+
+        for (int i = 0; i < moons.size(); i++)
+            moons.get(i).region();
+        for (int i = 0; i < asteroids.size(); i++)
+            asteroids.get(i).region();
+        assertEquals(packed, SpriteAtlas.size());
+    }
+}
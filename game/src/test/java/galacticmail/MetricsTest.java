@@ -0,0 +1,78 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsTest {
+    @Test
+    void bucketsCoverTheirValues() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.highestValue(bucket), "value " + value);
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1), "value " + value);
+        }
+    }
+
+    @Test
+    void percentilesWithinTwoPercent() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100000; nanos++)
+            h.record(nanos*1000);
+
+        assertEquals(100000, h.getCount());
+        assertEquals(100000000L, h.getMax());
+        assertEquals(50000500, h.getMean(), 1);
+        for (double p : new double[] { 50, 90, 99, 99.9 }) {
+            double expected = p*1000000;
+            assertEquals(expected, h.percentile(p), expected*0.02, "p" + p);
+        }
+        assertEquals(h.getMax(), h.percentile(100));
+    }
+
+    @Test
+    void resetStartsOver() {
+        Metrics m = new Metrics();
+        m.recordTick(1000, 5, 7, 2);
+        m.recordFrame(2000);
+        m.recordRenderAllocation(64);
+        m.reset();
+
+        assertEquals(0, m.getTicks());
+        assertEquals(0, m.getFrames());
+        assertEquals(0, m.getAllocatingFrames());
+        assertEquals(0, m.getRenderAllocatedMax());
+        assertEquals(0, m.tick.getCount());
+        assertEquals(0, m.render.getCount());
+        assertEquals(5, m.getMoons()); // the last tick's counts are still what is on screen
+    }
+
+    @Test
+    void renderAllocations() {
+        Metrics m = new Metrics();
+        m.recordRenderAllocation(0);
+        m.recordRenderAllocation(-1); // AllocationCounter can't measure
+        m.recordRenderAllocation(120);
+        m.recordRenderAllocation(48);
+
+        assertEquals(2, m.getAllocatingFrames());
+        assertEquals(120, m.getRenderAllocatedMax());
+    }
+
+    @Test
+    void dumpFormats() {
+        Metrics m = new Metrics();
+        m.recordTick(1000, 5, 7, 2);
+        m.recordFrame(2000);
+
+        assertEquals(Metrics.csvHeader().split(",").length, m.toCsv().split(",").length);
+        assertTrue(m.toJson().startsWith("{") && m.toJson().endsWith("}"));
+        assertTrue(m.toJson().contains("\"moons\":5"));
+        assertEquals(Metrics.SUMMARY_LINES, m.summary().length);
+    }
+}
@@ -0,0 +1,71 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelPhysicsTest {
+    // enough entities that movement and pair finding are split over several chunks
+    private static final int ENTITIES = 6000;
+
+    @Test
+    void threadCountDoesNotChangeTheResult() {
+        ParallelPhysics single = new ParallelPhysics(1);
+        ParallelPhysics parallel = new ParallelPhysics(4);
+        try {
+            EntityStore<Body> a = Body.scatter(9, ENTITIES, 4000, 3000);
+            EntityStore<Body> b = Body.scatter(9, ENTITIES, 4000, 3000);
+            SpatialGrid gridA = new SpatialGrid(64, 100, 4000, 3000);
+            SpatialGrid gridB = new SpatialGrid(64, 100, 4000, 3000);
+
+            for (int tick = 0; tick < 100; tick++) {
+                single.update(a);
+                gridA.update(a);
+                int pairsA = single.bouncePairs(a, gridA);
+
+                parallel.update(b);
+                gridB.update(b);
+                int pairsB = parallel.bouncePairs(b, gridB);
+
+                assertEquals(pairsA, pairsB, "tick " + tick);
+                assertEquals(a.getMaxStep(), b.getMaxStep());
+                assertArrayEquals(a.x, b.x, "tick " + tick);
+                assertArrayEquals(a.y, b.y, "tick " + tick);
+                assertArrayEquals(a.vx, b.vx, "tick " + tick);
+                assertArrayEquals(a.vy, b.vy, "tick " + tick);
+            }
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    // the parallel passes have to match the plain single-threaded EntityStore ones as well
+    @Test
+    void matchesEntityStore() {
+        ParallelPhysics parallel = new ParallelPhysics(4);
+        try {
+            EntityStore<Body> a = Body.scatter(5, ENTITIES, 4000, 3000);
+            EntityStore<Body> b = Body.scatter(5, ENTITIES, 4000, 3000);
+            SpatialGrid gridA = new SpatialGrid(64, 100, 4000, 3000);
+            SpatialGrid gridB = new SpatialGrid(64, 100, 4000, 3000);
+
+            for (int tick = 0; tick < 50; tick++) {
+                a.update();
+                gridA.update(a);
+                int pairsA = a.bouncePairs(gridA);
+
+                parallel.update(b);
+                gridB.update(b);
+                int pairsB = parallel.bouncePairs(b, gridB);
+
+                assertEquals(pairsA, pairsB, "tick " + tick);
+                assertArrayEquals(a.vx, b.vx, "tick " + tick);
+                assertArrayEquals(a.vy, b.vy, "tick " + tick);
+            }
+        } finally {
+            parallel.shutdown();
+        }
+    }
+}
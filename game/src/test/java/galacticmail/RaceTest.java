@@ -0,0 +1,51 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RaceTest {
+    private static final int RACERS = 2;
+    private static final int TICKS_PER_SECOND = 120;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // a short race over loopback: every client gets the whole race, and its moons and asteroids match the server's
+    @Test
+    @Timeout(30)
+    void loopbackRace() throws IOException, InterruptedException {
+        RaceServer server = new RaceServer("127.0.0.1", 0, RACERS, 4, TICKS_PER_SECOND);
+        server.getGame().setHazardWaves(true);
+        server.start();
+
+        RaceClient[] clients = new RaceClient[RACERS];
+        for (int r = 0; r < RACERS; r++) {
+            clients[r] = RaceClient.connect("127.0.0.1", server.getPort());
+            clients[r].setBot(new Autopilot());
+            clients[r].start();
+        }
+
+        Thread.sleep(2000);
+        server.stop();
+        for (RaceClient client : clients)
+            client.awaitClosed();
+
+        long ticks = server.getTick();
+        assertTrue(ticks > TICKS_PER_SECOND, "only " + ticks + " ticks");
+        for (int r = 0; r < RACERS; r++) {
+            RaceClient client = clients[r];
+            assertEquals(r, client.getRacer());
+            assertEquals(ticks, client.getTick(), "racer " + r);
+            assertTrue(client.getStates() > 0 && client.getBytesRead() > 0);
+
+            float error = client.mirrorError(server.getGame());
+            assertTrue(error >= 0 && error <= EntitySync.MAX_ERROR, "racer " + r + ": error " + error);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RenderAllocationTest {
+    // the first few thousand frames allocate while the JIT compiles the render path, and a recompile later on
+    // can allocate once in a while too, so look for a run of FRAMES frames that allocated nothing at all
+    private static final int WARMUP_FRAMES = 6000;
+    private static final int FRAMES = 2000;
+    private static final int TRIES = 5;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void fullRedraw() { assertNoAllocation(false); }
+
+    @Test
+    void layered() { assertNoAllocation(true); }
+
+    // play through a few levels drawing into an offscreen image, then count what the frames allocate
+    private void assertNoAllocation(boolean layered) {
+        assumeTrue(AllocationCounter.isSupported(), "this JVM can't count allocated bytes");
+
+        Game game = new Game(3, 0, new Random(1), null);
+        game.setDrawn(true);
+        LayeredRenderer renderer = new LayeredRenderer(game, null);
+        BufferedImage image = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        AllocationCounter counter = new AllocationCounter();
+
+        render(game, renderer, g, WARMUP_FRAMES, layered, counter);
+        for (int i = 0; i < TRIES; i++) {
+            counter.reset();
+            render(game, renderer, g, FRAMES, layered, counter);
+            if (counter.getMaxBytes() == 0)
+                break;
+        }
+        g.dispose();
+
+        assertEquals(FRAMES, counter.getSamples());
+        assertEquals(0, counter.getMaxBytes(), "render allocated: " + counter);
+    }
+
+    private static void render(Game game, LayeredRenderer renderer, Graphics2D g, int frames, boolean layered,
+                               AllocationCounter counter) {
+        for (int frame = 0; frame < frames; frame++) {
+            if (!game.isRunning())
+                game.reset(3, 0);
+            game.update();
+
+            counter.start();
+            if (layered)
+                renderer.render(g, 0.5f);
+            else
+                game.render(g, 0.5f);
+            counter.stop();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+    private static final int TICKS = 6000;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void classic() throws IOException { roundTrip(7, false, false, Game.WIDTH, Game.HEIGHT, Game.TICKS_PER_SECOND); }
+
+    @Test
+    void trigTableAndWaves() throws IOException { roundTrip(8, true, true, Game.WIDTH, Game.HEIGHT, Game.TICKS_PER_SECOND); }
+
+    @Test
+    void largeWorld() throws IOException { roundTrip(9, false, true, 8*Game.WIDTH, 8*Game.HEIGHT, Game.TICKS_PER_SECOND); }
+
+    @Test
+    void tickRate() throws IOException { roundTrip(10, false, false, Game.WIDTH, Game.HEIGHT, 60); }
+
+    // record a session of random key presses, then replay it into a fresh game and compare the state hashes
+    private void roundTrip(long seed, boolean trigTable, boolean waves, int width, int height, int ticksPerSecond)
+            throws IOException {
+        Path file = dir.resolve("session-" + seed + ".gmrp");
+        Game game = new Game(1, 0, new Random(seed), null, width, height);
+        game.setTrigTable(trigTable);
+        game.setHazardWaves(waves);
+        game.setTicksPerSecond(ticksPerSecond);
+        game.record(new Replay.Recorder(file, seed, game));
+
+        Random keys = new Random(seed*31);
+        int levels = 1;
+        for (int t = 0; t < TICKS; t++) {
+            if (!game.isRunning()) {
+                game.prepareNextLevel();
+                game.nextLevel();
+                levels++;
+            }
+            for (int k = keys.nextInt(3); k > 0; k--) {
+                int key = keys.nextInt(3); // LEFT, RIGHT or LAUNCH
+                game.getInput().offer(keys.nextBoolean() ? InputQueue.pressed(key) : InputQueue.released(key));
+            }
+            game.update();
+        }
+        game.stopRecording();
+        assertTrue(levels > 1, "the session should cross levels");
+
+        Replay.Reader replay = Replay.Reader.open(file);
+        assertEquals(seed, replay.getSeed());
+        assertEquals(trigTable, replay.isTrigTable());
+        assertEquals(waves, replay.isHazardWaves());
+        assertEquals(width, replay.getWorldWidth());
+        assertEquals(height, replay.getWorldHeight());
+        assertEquals(ticksPerSecond, replay.getTicksPerSecond());
+
+        Game copy = new Game(1, 0, new Random(replay.getSeed()), null, replay.getWorldWidth(), replay.getWorldHeight());
+        copy.setHazardWaves(replay.isHazardWaves());
+        copy.setTrigTable(replay.isTrigTable());
+        copy.setTicksPerSecond(replay.getTicksPerSecond());
+        copy.play(replay);
+        while (!replay.isFinished()) {
+            if (!copy.isRunning())
+                copy.nextLevel();
+            copy.update();
+        }
+
+        assertEquals(TICKS, replay.getTicks());
+        assertEquals(game.getLevel(), copy.getLevel());
+        assertEquals(game.stateHash(), copy.stateHash());
+    }
+}
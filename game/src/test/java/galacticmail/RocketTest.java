@@ -0,0 +1,34 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RocketTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // a landing scores 50000, less 5000 for every second since the last one, counted at the game's tick rate
+    @Test
+    void landingScoredInSeconds() {
+        assertEquals(25000, scoreAfter(150, 30));
+        assertEquals(37500, scoreAfter(150, 60));
+        assertEquals(0, scoreAfter(600, 30));
+    }
+
+    private static long scoreAfter(int ticks, int ticksPerSecond) {
+        Assets assets = Assets.get();
+        EntityStore<Moon> moons = new EntityStore<>(16);
+        Moon.spawn(moons, new Random(1), assets.moon, 100, 100, 8, 64, 64, 8);
+
+        Rocket rocket = new Rocket(assets.flying, assets.landed);
+        rocket.setTicksPerSecond(ticksPerSecond);
+        for (int t = 0; t < ticks; t++)
+            rocket.update();
+        rocket.land(moons, 0);
+        return rocket.getScore();
+    }
+}
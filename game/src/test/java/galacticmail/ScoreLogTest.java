@@ -0,0 +1,146 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScoreLogTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopensWithEveryRun() throws IOException {
+        Path file = dir.resolve("scores.log");
+        ScoreLog log = ScoreLog.open(file, 10);
+        submit(log, 1, 100, 2, 300, 3, 200);
+        log.close();
+
+        log = ScoreLog.open(file, 10);
+        assertEquals(3, log.getRuns());
+        assertEquals(200, log.getMeanScore(), 1e-9);
+        assertEquals(300, log.getBestScore());
+        assertEquals(3, log.getBestLevel());
+        assertLevels(log.top(10), 2, 3, 1);
+        assertEquals(2, log.top(10).get(0).getLandings());
+        assertEquals(60, log.top(10).get(0).getLanding(1));
+        log.close();
+    }
+
+    // only the best runs are kept, the rest live on in the totals. ties keep the order they were recorded in
+    @Test
+    void compactsPastKeep() throws IOException {
+        Path file = dir.resolve("scores.log");
+        ScoreLog log = ScoreLog.open(file, 3);
+        submit(log, 1, 50, 2, 70, 3, 70, 4, 10, 5, 90, 6, 70, 7, 20, 8, 60);
+        log.close();
+        assertLevels(log.top(10), 5, 2, 3);
+
+        for (int session = 0; session < 3; session++) { // each open compacts the file again
+            log = ScoreLog.open(file, 3);
+            assertEquals(8 + session, log.getRuns());
+            assertEquals(3, log.top(10).size());
+            assertLevels(log.top(2), 5, 2);
+            assertLevels(log.top(10), 5, 2, 3);
+            assertEquals(8 + session, log.getBestLevel());
+            submit(log, 9 + session, 70); // ties with the kept runs, so it isn't kept
+            log.close();
+        }
+
+        log = ScoreLog.open(file, 3);
+        assertEquals(11, log.getRuns());
+        assertEquals((50 + 70 + 70 + 10 + 90 + 70 + 20 + 60 + 3*70)/11.0, log.getMeanScore(), 1e-9);
+        assertLevels(log.top(10), 5, 2, 3);
+        log.close();
+    }
+
+    // a record torn by a crash ends the log, the runs before it are all there
+    @Test
+    void stopsAtATornRecord() throws IOException {
+        Path file = dir.resolve("scores.log");
+        ScoreLog log = ScoreLog.open(file, 10);
+        submit(log, 1, 100, 2, 200, 3, 300);
+        log.close();
+
+        List<Integer> ends = recordEnds(file);
+        assertEquals(3, ends.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(ends.get(2) - 3);
+        }
+
+        log = ScoreLog.open(file, 10);
+        assertEquals(2, log.getRuns());
+        assertEquals(150, log.getMeanScore(), 1e-9);
+        assertLevels(log.top(10), 2, 1);
+        submit(log, 4, 400); // the log carries on after the last good record
+        log.close();
+
+        log = ScoreLog.open(file, 10);
+        assertEquals(3, log.getRuns());
+        assertLevels(log.top(10), 4, 2, 1);
+        log.close();
+    }
+
+    // a damaged record fails its checksum, loading stops there
+    @Test
+    void stopsAtACorruptRecord() throws IOException {
+        Path file = dir.resolve("scores.log");
+        ScoreLog log = ScoreLog.open(file, 10);
+        submit(log, 1, 100, 2, 200, 3, 300, 4, 400);
+        log.close();
+
+        List<Integer> ends = recordEnds(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            int at = ends.get(1) + 4 + 10; // inside the time of the third run
+            channel.read(b, at);
+            b.put(0, (byte)(b.get(0) ^ 0x40)).rewind();
+            channel.write(b, at);
+        }
+
+        log = ScoreLog.open(file, 10);
+        assertEquals(2, log.getRuns());
+        assertEquals(150, log.getMeanScore(), 1e-9);
+        assertLevels(log.top(10), 2, 1);
+        log.close();
+    }
+
+    // submit runs as (level, score) pairs, each with a couple of landings
+    private static void submit(ScoreLog log, int... runs) {
+        for (int k = 0; k < runs.length; k += 2)
+            log.submit(runs[k], runs[k + 1], new int[] {30, 60}, 2);
+    }
+
+    private static void assertLevels(List<ScoreLog.Run> top, int... levels) {
+        int[] actual = new int[top.size()];
+        for (int k = 0; k < actual.length; k++)
+            actual[k] = top.get(k).level;
+        assertEquals(Arrays.toString(levels), Arrays.toString(actual));
+    }
+
+    // where each record in the file ends (see the record format in ScoreLog)
+    private static List<Integer> recordEnds(Path file) throws IOException {
+        List<Integer> ends = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate((int)channel.size());
+            while (data.hasRemaining() && channel.read(data) >= 0) { }
+            data.flip();
+
+            int at = 0;
+            while (at + 4 <= data.limit() && data.getInt(at) > 0) {
+                at += data.getInt(at) + 8;
+                ends.add(at);
+            }
+        }
+        return ends;
+    }
+}
@@ -0,0 +1,69 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpatialGridTest {
+    // bouncePairs through the grid has to bounce the same pairs, in the same order, as checking every pair
+    @Test
+    void bouncePairsMatchesBruteForce() {
+        for (long seed = 1; seed <= 20; seed++) {
+            int n = 50 + (int)seed*20;
+            EntityStore<Body> grid = Body.scatter(seed, n, 1024, 768);
+            EntityStore<Body> brute = Body.scatter(seed, n, 1024, 768);
+            SpatialGrid spatial = new SpatialGrid(64, 100, 1024, 768);
+
+            for (int tick = 0; tick < 50; tick++) {
+                grid.update();
+                spatial.update(grid);
+                int pairs = grid.bouncePairs(spatial);
+
+                brute.update();
+                int brutePairs = 0;
+                for (int i = 0; i < brute.size(); i++) {
+                    for (int j = i + 1; j < brute.size(); j++) {
+                        if (Collideable.collide(brute.get(i), brute.get(j))) {
+                            Collideable.bounce(brute.get(i), brute.get(j));
+                            brutePairs++;
+                        }
+                    }
+                }
+
+                assertEquals(brutePairs, pairs, "seed " + seed + " tick " + tick);
+                assertArrayEquals(brute.x, grid.x);
+                assertArrayEquals(brute.y, grid.y);
+                assertArrayEquals(brute.vx, grid.vx);
+                assertArrayEquals(brute.vy, grid.vy);
+            }
+        }
+    }
+
+    // entities that move, wrap or get removed have to be found in their new cells
+    @Test
+    void queryFindsEveryEntityInReach() {
+        EntityStore<Body> store = Body.scatter(3, 300, 1024, 768);
+        SpatialGrid spatial = new SpatialGrid(64, 100, 1024, 768);
+
+        for (int tick = 0; tick < 100; tick++) {
+            store.update();
+            if (tick % 10 == 0)
+                store.remove(tick % store.size());
+            spatial.update(store);
+
+            for (int i = 0; i < store.size(); i++) {
+                float reach = store.radius[i] + store.getMaxRadius();
+                int n = spatial.query(store.x[i], store.y[i], reach);
+                boolean[] found = new boolean[store.size()];
+                for (int k = 0; k < n; k++)
+                    found[spatial.candidate(k)] = true;
+
+                for (int j = 0; j < store.size(); j++) {
+                    if (store.collide(i, j))
+                        assertEquals(true, found[j], "slot " + j + " missing around " + i);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class SpriteBatchTest {
+    private static final int TICKS = 600;
+    private static final int FRAME_EVERY = 7;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    // drawing out of the atlas gives the same picture as drawing each sprite itself
+    @Test
+    void samePictureAsRender() { assertSamePicture(0); }
+
+    @Test
+    void samePictureWithRacers() { assertSamePicture(3); }
+
+    private static void assertSamePicture(int racers) {
+        Game plain = game(racers, false);
+        Game batched = game(racers, true);
+        BufferedImage expected = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        BufferedImage actual = new BufferedImage(Game.WIDTH, Game.HEIGHT, BufferedImage.TYPE_INT_RGB);
+
+        for (int tick = 0; tick < TICKS; tick++) {
+            if (!plain.isRunning()) {
+                plain.reset(2, 0);
+                batched.reset(2, 0);
+            }
+            plain.update();
+            batched.update();
+
+            if (tick % FRAME_EVERY == 0) {
+                float alpha = (tick % 4)/4.0f;
+                assertArrayEquals(pixels(plain, expected, alpha), pixels(batched, actual, alpha), "tick " + tick);
+            }
+        }
+    }
+
+    private static Game game(int racers, boolean batched) {
+        Game game = new Game(2, 0, new Random(5), null);
+        game.setDrawn(true);
+        game.setBatchedSprites(batched);
+        for (int r = 0; r < racers; r++)
+            game.addRacer();
+        return game;
+    }
+
+    private static int[] pixels(Game game, BufferedImage image, float alpha) {
+        Graphics2D g = image.createGraphics();
+        game.render(g, alpha);
+        g.dispose();
+        return ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+    }
+}
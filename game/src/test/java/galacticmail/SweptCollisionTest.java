@@ -0,0 +1,58 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class SweptCollisionTest {
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void timeOfImpact() {
+        assertEquals(0.45f, Collideable.timeOfImpact(-100, 0, 200, 0, 10), 1e-6f);
+        assertEquals(0, Collideable.timeOfImpact(5, 0, 200, 0, 10));         // touching from the start
+        assertEquals(-1, Collideable.timeOfImpact(-100, 50, 200, 0, 10));    // passes by
+        assertEquals(-1, Collideable.timeOfImpact(-100, 0, -200, 0, 10));    // moving away
+        assertEquals(-1, Collideable.timeOfImpact(-100, 0, 50, 0, 10));      // doesn't get there this tick
+    }
+
+    // something that moved right through another within one tick is still caught, and the first of two is returned
+    @Test
+    void noTunnelling() {
+        EntityStore<Body> moons = new EntityStore<>(4);
+        Body far = new Body(moons, 580, 500, 0, 0, 20);
+        Body near = new Body(moons, 500, 500, 0, 0, 20);
+        SpatialGrid grid = new SpatialGrid(64, 64, Game.WIDTH, Game.HEIGHT);
+        grid.update(moons);
+
+        EntityStore<Body> rockets = new EntityStore<>(1);
+        Body rocket = new Body(rockets, 640, 500, 240, 0, 10); // came from 400 this tick
+        assertFalse(Collideable.collide(rocket, near));
+        assertFalse(Collideable.collide(rocket, far));
+        assertEquals(moons.slot(near.getId()), moons.firstCollision(rocket, grid));
+    }
+
+    // the game moves the rockets before checking them, so the sweep covers the motion of the tick being checked
+    @Test
+    void rocketSweptOverThisTick() {
+        Assets assets = Assets.get();
+        Rocket rocket = new Rocket(assets.flying, assets.landed);
+        rocket.spawn(100, 300);
+        rocket.takeoff();
+        rocket.setVelocity(8, 0); // full speed along +x
+
+        EntityStore<Body> moons = new EntityStore<>(1);
+        float moonSize = 20;
+        float reach = SpatialGrid.radius(rocket) + moonSize/2 + 1;
+        new Body(moons, 100 + reach + 4, 300, 0, 0, moonSize); // out of reach now, reached during the next move
+        SpatialGrid grid = new SpatialGrid(64, 64, Game.WIDTH, Game.HEIGHT);
+        grid.update(moons);
+
+        rocket.update();
+        assertEquals(8, rocket.getDX());
+        assertEquals(0, moons.firstCollision(rocket, grid));
+    }
+}
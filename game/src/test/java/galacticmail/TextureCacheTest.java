@@ -0,0 +1,63 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class TextureCacheTest {
+    @Test
+    void scaledOnce() {
+        BufferedImage source = texture(40, 20);
+
+        BufferedImage scaled = TextureCache.get(source, 80, 40);
+        assertEquals(80, scaled.getWidth());
+        assertEquals(40, scaled.getHeight());
+        assertSame(scaled, TextureCache.get(source, 80, 40));
+        assertNotSame(scaled, TextureCache.get(source, 40, 20));
+        assertNotSame(scaled, TextureCache.get(source, 0, 0, 20, 20, 80, 40));
+    }
+
+    // a texture loaded twice is cached twice
+    @Test
+    void keyedBySourceIdentity() {
+        assertNotSame(TextureCache.get(texture(16, 16)), TextureCache.get(texture(16, 16)));
+    }
+
+    @Test
+    void rotatedFrames() {
+        BufferedImage source = texture(30, 40);
+
+        BufferedImage frame = TextureCache.rotated(source, 90);
+        assertEquals(50, TextureCache.rotatedSize(source));
+        assertEquals(50, frame.getWidth());
+        assertEquals(50, frame.getHeight());
+        assertSame(frame, TextureCache.rotated(source, 90));
+        assertNotSame(frame, TextureCache.rotated(source, 91));
+
+        // the texture's center stays in the middle of the frame
+        assertEquals(source.getRGB(15, 20), TextureCache.rotated(source, 0).getRGB(25, 25));
+    }
+
+    @Test
+    void rotationOfAngle() {
+        assertEquals(0, TextureCache.rotation(0));
+        assertEquals(TextureCache.ROTATIONS/2, TextureCache.rotation(Math.PI));
+        assertEquals(TextureCache.ROTATIONS*3/4, TextureCache.rotation(-Math.PI/2));
+        assertEquals(0, TextureCache.rotation(2*Math.PI));
+        assertEquals(1, TextureCache.rotation(2*Math.PI/TextureCache.ROTATIONS));
+    }
+
+    // an opaque texture of a single color
+    private static BufferedImage texture(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                image.setRGB(x, y, 0xff3366cc);
+        }
+        return image;
+    }
+}
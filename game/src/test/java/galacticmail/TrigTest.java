@@ -0,0 +1,76 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrigTest {
+    private static final double MAX_ERROR = 1e-6;
+    private static final int LEVELS = 100;
+    private static final int MAX_TICKS = 20000;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void tableStaysCloseToMath() {
+        assertTrue(Trig.maxTableError() < MAX_ERROR, "max table error " + Trig.maxTableError());
+
+        Random rng = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            double degrees = rng.nextDouble()*1440 - 720;
+            assertEquals(Math.sin(Math.toRadians(degrees)), Trig.sin(degrees, true), MAX_ERROR);
+            assertEquals(Math.cos(Math.toRadians(degrees)), Trig.cos(degrees, true), MAX_ERROR);
+        }
+        assertEquals(Math.sin(Math.toRadians(33.3)), Trig.sin(33.3, false));
+        assertEquals(Math.cos(Math.toRadians(33.3)), Trig.cos(33.3, false));
+    }
+
+    // the same levels played by the Autopilot with exact trig and with the table end the same way on the same tick
+    @Test
+    void levelsEndTheSameWayWithTheTable() {
+        Random exactRng = new Random(3);
+        Random tableRng = new Random(3);
+        Game exact = null;
+        Game table = null;
+        int level = 1;
+        int score = 0;
+
+        for (int i = 0; i < LEVELS; i++) {
+            if (exact == null) {
+                exact = new Game(level, score, exactRng, null);
+                table = new Game(level, score, tableRng, null);
+                exact.setBot(new Autopilot());
+                table.setBot(new Autopilot());
+                table.setTrigTable(true);
+            } else {
+                exact.reset(level, score);
+                table.reset(level, score);
+            }
+
+            for (int t = 0; t < MAX_TICKS && (exact.isRunning() || table.isRunning()); t++) {
+                if (exact.isRunning())
+                    exact.update();
+                if (table.isRunning())
+                    table.update();
+            }
+
+            String at = "level " + level + " (#" + i + ")";
+            assertEquals(exact.isRunning(), table.isRunning(), at);
+            assertEquals(exact.isWin(), table.isWin(), at);
+            assertEquals(exact.getTicks(), table.getTicks(), at);
+
+            if (!exact.isRunning() && exact.isWin()) {
+                level += 1;
+                score += exact.getPlayer().getScore();
+            } else {
+                level = 1;
+                score = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package galacticmail;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WireTest {
+    private static final long[] VALUES = {
+            0, 1, -1, 63, -64, 64, -65, 127, 128, 255, 300, -300, 16383, 16384,
+            Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE + 1L, Integer.MIN_VALUE - 1L,
+            Long.MAX_VALUE, Long.MIN_VALUE
+    };
+
+    @Test
+    void varintsRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (long value : VALUES)
+            Wire.putVarint(buffer, value);
+        buffer.flip();
+        for (long value : VALUES)
+            assertEquals(value, Wire.getVarint(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    @Test
+    void signedRoundTrip() {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (long value : VALUES)
+            Wire.putSigned(buffer, value);
+        buffer.flip();
+        for (long value : VALUES)
+            assertEquals(value, Wire.getSigned(buffer));
+        assertEquals(0, buffer.remaining());
+    }
+
+    // small numbers either side of zero stay short, the extremes take the most bytes
+    @Test
+    void sizes() {
+        assertEquals(1, varintSize(0));
+        assertEquals(1, varintSize(127));
+        assertEquals(2, varintSize(128));
+        assertEquals(5, varintSize(Integer.MAX_VALUE));
+        assertEquals(10, varintSize(-1));
+
+        assertEquals(1, signedSize(0));
+        assertEquals(1, signedSize(-1));
+        assertEquals(1, signedSize(63));
+        assertEquals(1, signedSize(-64));
+        assertEquals(2, signedSize(64));
+        assertEquals(5, signedSize(Integer.MAX_VALUE));
+        assertEquals(5, signedSize(Integer.MIN_VALUE));
+        assertEquals(10, signedSize(Long.MIN_VALUE));
+    }
+
+    @Test
+    void framesKeepTheirLength() {
+        ByteBuffer buffer = ByteBuffer.allocate(2);
+        buffer = Wire.ensure(buffer, 64);
+        int start = Wire.begin(buffer, Wire.STATE);
+        Wire.putSigned(buffer, -12345);
+        Wire.end(buffer, start);
+
+        buffer.flip();
+        assertEquals(buffer.limit() - 4, buffer.getInt());
+        assertEquals(Wire.STATE, buffer.get());
+        assertEquals(-12345, Wire.getSigned(buffer));
+    }
+
+    private static int varintSize(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        Wire.putVarint(buffer, value);
+        return buffer.position();
+    }
+
+    private static int signedSize(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        Wire.putSigned(buffer, value);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,91 @@
+package galacticmail;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorldTest {
+    private static final int SIZE = 8*World.CHUNK;
+
+    @BeforeAll
+    static void quiet() { Audio.disable(); }
+
+    @Test
+    void sizes() {
+        assertEquals(2*World.CHUNK, World.size(1, Game.WIDTH));
+        assertEquals(0, World.size(5, Game.HEIGHT) % World.CHUNK);
+        assertTrue(World.size(5, Game.HEIGHT) >= 5*Game.HEIGHT);
+        assertThrows(IllegalArgumentException.class, () -> new World(SIZE + 1, SIZE));
+        assertThrows(IllegalArgumentException.class, () -> new World(World.CHUNK, World.CHUNK));
+    }
+
+    // a chunk comes out the same whichever way the camera got to it
+    @Test
+    void chunksIndependentOfVisitOrder() {
+        Rocket rocket = new Rocket(Assets.get().flying, Assets.get().landed);
+        Camera camera = new Camera(SIZE, SIZE);
+
+        World direct = new World(SIZE, SIZE);
+        EntityStore<Moon> directMoons = new EntityStore<>(64);
+        EntityStore<Asteroid> directAsteroids = new EntityStore<>(64);
+        direct.reset(21, 4, 30, 100, 100);
+        look(rocket, camera, 4000, 3000);
+        direct.stream(camera, directMoons, directAsteroids);
+
+        World around = new World(SIZE, SIZE);
+        EntityStore<Moon> aroundMoons = new EntityStore<>(64);
+        EntityStore<Asteroid> aroundAsteroids = new EntityStore<>(64);
+        around.reset(21, 4, 30, 100, 100);
+        for (int step = 0; step <= 10; step++) {
+            look(rocket, camera, 100 + step*390, 100 + step*290);
+            around.stream(camera, aroundMoons, aroundAsteroids);
+        }
+
+        assertTrue(directMoons.size() + directAsteroids.size() > 0);
+        assertArrayEquals(positions(directMoons), positions(aroundMoons));
+        assertArrayEquals(positions(directAsteroids), positions(aroundAsteroids));
+        assertTrue(direct.isLoaded(4000, 3000));
+        assertFalse(direct.isLoaded(100, 100));
+    }
+
+    // the view wraps around the world's edges
+    @Test
+    void cameraWraps() {
+        Rocket rocket = new Rocket(Assets.get().flying, Assets.get().landed);
+        Camera camera = new Camera(SIZE, SIZE);
+        assertFalse(camera.isFixed());
+        assertTrue(new Camera(Game.WIDTH, Game.HEIGHT).isFixed());
+
+        look(rocket, camera, 50, 50);
+        camera.frame(1);
+        assertEquals(camera.screenX(50, 50, 1) - 60, camera.screenX(SIZE - 10, SIZE - 10, 1), 0.01f);
+        assertEquals(camera.screenY(50, 50, 1) - 60, camera.screenY(SIZE - 10, SIZE - 10, 1), 0.01f);
+        assertEquals(-10, World.delta(SIZE - 10, SIZE), 0.01f);
+    }
+
+    private static void look(Rocket rocket, Camera camera, float x, float y) {
+        rocket.spawn(x, y);
+        camera.reset(rocket);
+    }
+
+    // the positions in a store, sorted so the order entities were loaded in doesn't matter
+    private static float[] positions(EntityStore<?> store) {
+        float[] xy = new float[2*store.size()];
+        long[] keys = new long[store.size()];
+        for (int i = 0; i < store.size(); i++)
+            keys[i] = (long)Float.floatToIntBits(store.x[i]) << 32 | Float.floatToIntBits(store.y[i]) & 0xffffffffL;
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            xy[2*i] = Float.intBitsToFloat((int)(keys[i] >> 32));
+            xy[2*i + 1] = Float.intBitsToFloat((int)keys[i]);
+        }
+        return xy;
+    }
+}
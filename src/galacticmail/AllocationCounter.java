@@ -0,0 +1,72 @@
+package galacticmail;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures how many bytes the current thread allocates between start() and stop(),
+ * using the allocated-bytes counter of the JVM's ThreadMXBean.
+ * Keeps the worst frame and how many frames allocated anything at all.
+ */
+public class AllocationCounter {
+    private static final com.sun.management.ThreadMXBean threads = threadBean();
+
+    private long startBytes;
+    private long lastBytes = 0;
+    private long maxBytes = 0;
+    private long samples = 0;
+    private long allocatingSamples = 0; // samples that allocated anything
+
+    public static boolean isSupported() { return threads != null; }
+
+    public void start() {
+        startBytes = allocatedBytes();
+    }
+
+    // returns the number of bytes allocated since start(), or -1 if unsupported
+    public long stop() {
+        if (threads == null)
+            return -1;
+
+        lastBytes = allocatedBytes() - startBytes;
+        maxBytes = Math.max(maxBytes, lastBytes);
+        samples++;
+        if (lastBytes > 0)
+            allocatingSamples++;
+
+        return lastBytes;
+    }
+
+    public long getLastBytes() { return lastBytes; }
+    public long getMaxBytes() { return maxBytes; }
+    public long getSamples() { return samples; }
+    public long getAllocatingSamples() { return allocatingSamples; }
+
+    public void reset() {
+        lastBytes = 0;
+        maxBytes = 0;
+        samples = 0;
+        allocatingSamples = 0;
+    }
+
+    @Override
+    public String toString() {
+        return samples + " samples, " + allocatingSamples + " allocated, max " + maxBytes + " bytes";
+    }
+
+    private static long allocatedBytes() {
+        return threads == null ? 0 : threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean))
+            return null;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)bean;
+        if (!threads.isThreadAllocatedMemorySupported())
+            return null;
+
+        threads.setThreadAllocatedMemoryEnabled(true);
+        return threads;
+    }
+}
@@ -0,0 +1,92 @@
+package galacticmail;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * All the game's images, loaded once and kept for the life of the process.
+ * Resources are read from the Resources directory (or the directory named by the galacticmail.resources
+ * system property) if it exists, otherwise from Resources/ inside the jar.
+ * Images are decoded in parallel, along with the scaled background and the sound effects.
+ */
+public final class Assets {
+    private static final String DIRECTORY = System.getProperty("galacticmail.resources", "Resources");
+    private static Assets instance;
+
+    public final BufferedImage background; // already scaled to the screen
+    public final BufferedImage flying;
+    public final BufferedImage landed;
+    public final BufferedImage moon;
+    public final BufferedImage asteroid;
+
+    private Assets(BufferedImage background, BufferedImage flying, BufferedImage landed,
+                   BufferedImage moon, BufferedImage asteroid) {
+        this.background = background;
+        this.flying = flying;
+        this.landed = landed;
+        this.moon = moon;
+        this.asteroid = asteroid;
+    }
+
+    // the loaded assets, loading them on first use
+    public static synchronized Assets get() {
+        if (instance == null)
+            instance = load();
+        return instance;
+    }
+
+    // open a resource (e.g. "Moon.png") from the resource directory or the jar
+    public static InputStream open(String name) throws IOException {
+        File file = new File(DIRECTORY, name);
+        if (file.isFile())
+            return new BufferedInputStream(new FileInputStream(file));
+
+        InputStream in = Assets.class.getResourceAsStream("/Resources/" + name);
+        if (in == null)
+            throw new FileNotFoundException(name);
+        return new BufferedInputStream(in);
+    }
+
+    private static Assets load() {
+        Audio.preload("Launch.mp3", "Explosion.mp3", "Music.mp3");
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(5, Runtime.getRuntime().availableProcessors()));
+        try {
+            CompletableFuture<BufferedImage> background = CompletableFuture.supplyAsync(() -> image("Background.png"), pool)
+                    .thenApplyAsync(image -> TextureCache.get(image, Game.WIDTH, Game.HEIGHT), pool);
+            CompletableFuture<BufferedImage> flying = CompletableFuture.supplyAsync(() -> image("Flying.png"), pool);
+            CompletableFuture<BufferedImage> landed = CompletableFuture.supplyAsync(() -> image("Landed.png"), pool);
+            CompletableFuture<BufferedImage> moon = CompletableFuture.supplyAsync(() -> image("Moon.png"), pool);
+            CompletableFuture<BufferedImage> asteroid = CompletableFuture.supplyAsync(() -> image("Asteroid.png"), pool);
+
+            return new Assets(background.join(), flying.join(), landed.join(), moon.join(), asteroid.join());
+        } catch (Exception e) {
+            System.err.println("*** could not load resources! ***");
+            e.printStackTrace();
+            System.exit(1);
+            return null;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static BufferedImage image(String name) {
+        try (InputStream in = open(name)) {
+            BufferedImage image = ImageIO.read(in);
+            if (image == null)
+                throw new IOException("not an image: " + name);
+            return image;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
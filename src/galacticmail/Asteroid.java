@@ -0,0 +1,162 @@
+package galacticmail;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Asteroids are collideable object that kill the player (end the game) if a collision occurs.
+ * Position and velocity are kept in an EntityStore, this is a view of one entity in it.
+ * The rotated sprite is only made when the asteroid is first drawn, so games that are never drawn
+ * (headless runs, see BatchRunner) don't build any.
+ */
+public class Asteroid implements Collideable {
+    // rotated frames of the asteroid texture, shared so that respawning an asteroid doesn't go through the cache.
+    // no lock: threads that race to fill in a frame get the same image from the cache
+    private static volatile Frames frames = new Frames(null);
+
+    private EntityStore<Asteroid> store;
+    private int id = -1; // see EntityStore.add
+    private float angle;
+    private BufferedImage source;  // texture as passed in
+    private BufferedImage texture; // source converted by the texture cache
+    private int rotation;          // frame for angle (asteroids never change their angle)
+    private BufferedImage sprite;  // texture pre-rotated by angle, null until first drawn
+    private int spriteOffset;      // draw offset so the rotated sprite stays centered on the texture
+    private int region = -1;       // sprite's SpriteAtlas region, looked up when first drawn by a SpriteBatch
+
+    public Asteroid(EntityStore<Asteroid> store, Random rng, BufferedImage texture, float x, float y) {
+        this.store = store;
+        init(rng, texture, x, y);
+    }
+
+    // a new asteroid, reusing one that was removed from the store if there is one
+    public static Asteroid spawn(EntityStore<Asteroid> store, Random rng, BufferedImage texture, float x, float y) {
+        Asteroid asteroid = store.parked();
+        if (asteroid == null)
+            return new Asteroid(store, rng, texture, x, y);
+
+        asteroid.init(rng, texture, x, y);
+        return asteroid;
+    }
+
+    private void init(Random rng, BufferedImage texture, float x, float y) {
+        setTexture(texture);
+        float vx = rng.nextFloat()*4 - 2;
+        float vy = rng.nextFloat()*2 - 1;
+        float angle = rng.nextFloat()*360.0f;
+        set(x, y, vx, vy, angle);
+    }
+
+    // bring back an asteroid saved with getAngle (see World), reusing a removed one if there is one
+    public static Asteroid restore(EntityStore<Asteroid> store, BufferedImage texture, float x, float y, float vx, float vy, float angle) {
+        Asteroid asteroid = store.parked();
+        if (asteroid == null)
+            asteroid = new Asteroid(store);
+
+        asteroid.setTexture(texture);
+        asteroid.set(x, y, vx, vy, angle);
+        return asteroid;
+    }
+
+    private Asteroid(EntityStore<Asteroid> store) { this.store = store; }
+
+    private void setTexture(BufferedImage texture) {
+        if (texture != source) {
+            this.source = texture;
+            this.texture = TextureCache.get(texture);
+            this.spriteOffset = (this.texture.getWidth() - TextureCache.rotatedSize(this.texture))/2;
+        }
+    }
+
+    private void set(float x, float y, float vx, float vy, float angle) {
+        this.angle = angle;
+        this.rotation = TextureCache.rotation(angle);
+        this.sprite = null;
+        this.region = -1;
+
+        if (id < 0)
+            id = store.add(this, x, y, vx, vy, this.texture.getWidth(), this.texture.getHeight());
+        else
+            store.respawn(id, x, y, vx, vy, this.texture.getWidth(), this.texture.getHeight());
+    }
+
+    // the rotated sprite, made the first time it's asked for
+    BufferedImage sprite() {
+        if (sprite == null)
+            sprite = frame(texture, rotation);
+        return sprite;
+    }
+
+    private static BufferedImage frame(BufferedImage texture, int rotation) {
+        Frames shared = frames;
+        if (shared.texture != texture)
+            frames = shared = new Frames(texture);
+
+        BufferedImage frame = shared.rotated.get(rotation);
+        if (frame == null) {
+            frame = TextureCache.rotated(texture, rotation);
+            shared.rotated.set(rotation, frame);
+        }
+        return frame;
+    }
+
+    public float getX() { return store.x[store.slot(id)]; }
+    public float getY() { return store.y[store.slot(id)]; }
+    public float getVX() { return store.vx[store.slot(id)]; }
+    public float getVY() { return store.vy[store.slot(id)]; }
+    public void setVelocity(float vx, float vy) { int i = store.slot(id); store.vx[i] = vx; store.vy[i] = vy; }
+    public float getWidth() { return store.width[store.slot(id)]; }
+    public float getHeight() { return store.height[store.slot(id)]; }
+    public float getAngle() { return angle; }
+    int getSpriteOffset() { return spriteOffset; }
+
+    // where the sprite is in the SpriteAtlas (see SpriteBatch)
+    int region() {
+        if (region < 0)
+            region = SpriteAtlas.region(sprite());
+        return region;
+    }
+
+    // take other's sprite and region if they were already made, when both show the same frame (see LevelLayout.apply)
+    void copySprite(Asteroid other) {
+        if (other.texture == texture && other.rotation == rotation) {
+            sprite = other.sprite;
+            region = other.region;
+        }
+    }
+
+    public void teleport(float x, float y) { int i = store.slot(id); store.x[i] = x; store.y[i] = y; }
+    public void bounce() { setVelocity(-getVX(), -getVY()); }
+
+    // movement for all asteroids is done by EntityStore.update
+
+    // alpha is how far we are between the previous tick and the current one (0 -> 1)
+    public void render(Graphics2D g, float alpha, Camera camera) {
+        int i = store.slot(id);
+        float rx = camera.screenX(store.prevX[i], store.x[i], alpha);
+        float ry = camera.screenY(store.prevY[i], store.y[i], alpha);
+
+        g.drawImage(sprite(), (int)rx + spriteOffset, (int)ry + spriteOffset, null);
+    }
+
+    // the area render() draws to
+    public void bounds(float alpha, Camera camera, Rectangle r) {
+        int i = store.slot(id);
+        float rx = camera.screenX(store.prevX[i], store.x[i], alpha);
+        float ry = camera.screenY(store.prevY[i], store.y[i], alpha);
+
+        BufferedImage sprite = sprite();
+        r.setBounds((int)rx + spriteOffset, (int)ry + spriteOffset, sprite.getWidth(), sprite.getHeight());
+    }
+
+    // the frames made so far for one texture
+    private static final class Frames {
+        final BufferedImage texture;
+        final AtomicReferenceArray<BufferedImage> rotated = new AtomicReferenceArray<>(TextureCache.ROTATIONS);
+
+        Frames(BufferedImage texture) { this.texture = texture; }
+    }
+}
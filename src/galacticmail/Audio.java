@@ -0,0 +1,264 @@
+package galacticmail;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.SourceDataLine;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays sound effects and music.
+ * Sounds are named by their file in the resources (see Assets.open).
+ * Each mp3 is decoded once into 16 bit stereo PCM and kept in memory. Decoding happens on a thread of its own
+ * per clip (the music takes a while), and the first request for a clip starts it, whoever makes it. A single
+ * mixer thread mixes up to MAX_VOICES sounds into one SourceDataLine. It never waits on a decode: a sound
+ * requested before its clip is ready is held back until it is, while everything else keeps playing.
+ * When nothing is playing the mixer blocks waiting for a sound, and looping music simply wraps around to the
+ * start of its samples.
+ * If there is no audio device (or audio is disabled for headless runs) every call is a no-op.
+ */
+public final class Audio {
+    private static final AudioFormat FORMAT = new AudioFormat(44100, 16, 2, true, false);
+    private static final int MAX_VOICES = 8;
+    private static final int BUFFER_FRAMES = 1024; // frames mixed per write (~23ms)
+    private static final long PENDING_WAIT_MILLIS = 10; // how often a silent mixer checks on sounds still decoding
+
+    // one daemon thread per decode, there are only a handful of clips
+    private static final Executor DECODER = task -> {
+        Thread thread = new Thread(task, "audio-decode");
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private static final Map<String, CompletableFuture<short[]>> clips = new ConcurrentHashMap<>();
+    private static final BlockingQueue<Voice> requests = new LinkedBlockingQueue<>();
+    private static volatile boolean enabled = true;
+    private static Thread mixer;
+
+    private Audio() { }
+
+    // play a sound once
+    public static void play(String resource) { submit(resource, false); }
+
+    // play a sound over and over (music)
+    public static void loop(String resource) { submit(resource, true); }
+
+    // start decoding sounds ahead of time so they're ready by the time they're first played
+    public static void preload(String... resources) {
+        if (!enabled)
+            return;
+
+        for (String resource : resources)
+            clip(resource);
+    }
+
+    // turn audio off for good (e.g. headless simulation)
+    public static void disable() {
+        enabled = false;
+        requests.clear();
+    }
+
+    public static boolean isEnabled() { return enabled; }
+
+    private static void submit(String resource, boolean looped) {
+        if (!enabled)
+            return;
+
+        startMixer();
+        requests.add(new Voice(resource, looped));
+    }
+
+    private static synchronized void startMixer() {
+        if (mixer != null)
+            return;
+
+        mixer = new Thread(Audio::mix, "audio-mixer");
+        mixer.setDaemon(true);
+        mixer.start();
+    }
+
+    private static void mix() {
+        SourceDataLine line;
+        try {
+            line = AudioSystem.getSourceDataLine(FORMAT);
+            line.open(FORMAT, BUFFER_FRAMES*4*4);
+            line.start();
+        } catch (Exception e) {
+            System.err.println("*** no audio device, sound disabled ***");
+            disable();
+            return;
+        }
+
+        Voice[] voices = new Voice[MAX_VOICES];
+        int active = 0;
+        List<Voice> pending = new ArrayList<>(); // requested but still decoding
+        int[] mix = new int[BUFFER_FRAMES*2];
+        byte[] out = new byte[BUFFER_FRAMES*4];
+
+        try {
+            while (enabled) {
+                // block while silent, otherwise just pick up anything new
+                Voice request;
+                if (active > 0)
+                    request = requests.poll();
+                else if (pending.isEmpty())
+                    request = requests.take();
+                else
+                    request = requests.poll(PENDING_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                while (request != null) {
+                    request.clip = clip(request.resource);
+                    pending.add(request);
+                    request = requests.poll();
+                }
+
+                // start the sounds whose clips are ready, in the order they were asked for
+                for (int p = 0; p < pending.size(); p++) {
+                    Voice voice = pending.get(p);
+                    if (!voice.clip.isDone())
+                        continue;
+
+                    pending.remove(p--);
+                    voice.samples = voice.clip.getNow(null);
+                    if (voice.samples != null)
+                        active = addVoice(voices, active, voice);
+                }
+
+                if (active == 0)
+                    continue;
+
+                Arrays.fill(mix, 0);
+                for (int v = active - 1; v >= 0; v--) {
+                    if (!voices[v].mixInto(mix)) { // finished, swap-remove it
+                        voices[v] = voices[--active];
+                        voices[active] = null;
+                    }
+                }
+
+                for (int i = 0; i < mix.length; i++) {
+                    int s = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+                    out[2*i] = (byte)s;
+                    out[2*i + 1] = (byte)(s >> 8);
+                }
+                line.write(out, 0, out.length);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            line.close();
+        }
+    }
+
+    // add a voice, replacing the one-shot sound that has played the longest if we're out of voices
+    private static int addVoice(Voice[] voices, int active, Voice voice) {
+        if (active < voices.length) {
+            voices[active] = voice;
+            return active + 1;
+        }
+
+        int oldest = -1;
+        for (int v = 0; v < active; v++) {
+            if (!voices[v].looped && (oldest < 0 || voices[v].position > voices[oldest].position))
+                oldest = v;
+        }
+        if (oldest >= 0)
+            voices[oldest] = voice;
+        return active;
+    }
+
+    // the decoded samples of a sound (null if it couldn't be loaded), decoding it if nobody has asked for it yet
+    static CompletableFuture<short[]> clip(String resource) {
+        return clips.computeIfAbsent(resource, r -> CompletableFuture.supplyAsync(() -> decode(r), DECODER));
+    }
+
+    // decode an mp3 into interleaved stereo samples at the mixer rate
+    private static short[] decode(String resource) {
+        try (InputStream in = Assets.open(resource)) {
+            Bitstream bitstream = new Bitstream(in);
+            Decoder decoder = new Decoder();
+            short[] samples = new short[1 << 16];
+            int count = 0;
+            int rate = 0;
+            int channels = 0;
+
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                SampleBuffer frame = (SampleBuffer)decoder.decodeFrame(header, bitstream);
+                rate = frame.getSampleFrequency();
+                channels = frame.getChannelCount();
+
+                int length = frame.getBufferLength();
+                if (count + length > samples.length)
+                    samples = Arrays.copyOf(samples, Math.max(samples.length*2, count + length));
+                System.arraycopy(frame.getBuffer(), 0, samples, count, length);
+                count += length;
+                bitstream.closeFrame();
+            }
+            bitstream.close();
+
+            return toMixerFormat(samples, count, rate, channels);
+        } catch (Exception e) {
+            System.err.println("*** could not load sound " + resource + " ***");
+            return null;
+        }
+    }
+
+    // convert to stereo at the mixer's sample rate (nearest sample, our clips are all 44.1kHz anyway)
+    private static short[] toMixerFormat(short[] samples, int count, int rate, int channels) {
+        if (channels == 2 && rate == (int)FORMAT.getSampleRate())
+            return Arrays.copyOf(samples, count);
+
+        int frames = count / channels;
+        int outFrames = (int)((long)frames * (long)FORMAT.getSampleRate() / rate);
+        short[] stereo = new short[outFrames*2];
+
+        for (int i = 0; i < outFrames; i++) {
+            int src = (int)((long)i * rate / (long)FORMAT.getSampleRate()) * channels;
+            stereo[2*i] = samples[src];
+            stereo[2*i + 1] = samples[src + channels - 1];
+        }
+        return stereo;
+    }
+
+    /**
+     * A sound being played by the mixer.
+     */
+    private static final class Voice {
+        final String resource;
+        final boolean looped;
+        CompletableFuture<short[]> clip;
+        short[] samples;
+        int position = 0;
+
+        Voice(String resource, boolean looped) {
+            this.resource = resource;
+            this.looped = looped;
+        }
+
+        // add the next buffer of this sound into mix, returns false once it has finished
+        boolean mixInto(int[] mix) {
+            for (int i = 0; i < mix.length; i++) {
+                if (position == samples.length) {
+                    if (!looped)
+                        return false;
+                    position = 0;
+                }
+                mix[i] += samples[position++];
+            }
+            return true;
+        }
+    }
+}
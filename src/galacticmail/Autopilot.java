@@ -0,0 +1,51 @@
+package galacticmail;
+
+/**
+ * The Bot used by the HeadlessEngine: turns toward the nearest moon, and takes off when sitting still.
+ * In a large world it heads for the nearest chunk with moons when none are loaded.
+ * Simple, but good enough that levels actually finish.
+ */
+public class Autopilot implements Bot {
+    private final float[] target = new float[2];
+
+    @Override
+    public void act(Snapshot game, Controls controls) {
+        float x = game.getRocketX(), y = game.getRocketY();
+        float best = Float.MAX_VALUE;
+        float tx = 0, ty = 0;
+
+        for (int k = 0; k < game.getMoonCount(); k++) {
+            float dx = game.getMoonX(k) - x;
+            float dy = game.getMoonY(k) - y;
+            if (game.isLargeWorld()) { // the short way around
+                dx = World.delta(dx, game.getWorldWidth());
+                dy = World.delta(dy, game.getWorldHeight());
+            }
+            float d = dx*dx + dy*dy;
+
+            if (d >= 1 && d < best) { // skip the moon we're standing on
+                best = d;
+                tx = dx;
+                ty = dy;
+            }
+        }
+        if (best == Float.MAX_VALUE && game.nearestUnloadedMoons(target)) {
+            best = 0;
+            tx = World.delta(target[0] - x, game.getWorldWidth());
+            ty = World.delta(target[1] - y, game.getWorldHeight());
+        }
+        if (best == Float.MAX_VALUE)
+            return;
+
+        float angle = (float)Math.toDegrees(Math.atan2(ty, tx));
+        float diff = angle - game.getRocketAngle();
+        diff -= 360*Math.round(diff/360); // -180 -> 180
+
+        if (game.getRocketState() == RocketState.STOPPED) {
+            controls.rotate(diff);
+            controls.takeoff();
+        } else {
+            controls.rotate(Math.max(-5, Math.min(5, diff)));
+        }
+    }
+}
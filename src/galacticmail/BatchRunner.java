@@ -0,0 +1,151 @@
+package galacticmail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * Plays many independent headless runs at once, for evaluating a Bot over thousands of games.
+ * Each run is a HeadlessEngine of its own (its own Game, Random and bot) playing from level 1 until a level is lost
+ * or times out, so nothing is shared between runs but the loaded assets and texture caches.
+ * Runs are spread over a ForkJoinPool: the range of runs is split in halves down to single runs, and idle threads
+ * steal halves from busy ones, which keeps every thread busy even though some runs last much longer than others.
+ * Run i is seeded from the batch seed and i alone, so the results (and the combined hash) are the same
+ * for any number of threads.
+ */
+public class BatchRunner {
+    private final long seed;
+    private final int games;
+    private final int maxLevels; // a run that wins this many levels ends there
+    private final int maxTicks;  // per level, see HeadlessEngine
+    private final Supplier<Bot> bots;
+    private boolean hazardWaves = false;
+    private boolean trigTable = false;
+    private int worldWidth = Game.WIDTH;
+    private int worldHeight = Game.HEIGHT;
+
+    // by run
+    private final long[] scores;
+    private final int[] levels;  // level reached
+    private final long[] ticks;
+    private final long[] hashes; // combined state hash of the run's levels
+
+    private int threads = 0;
+    private double seconds = 0;
+
+    // games runs, each flown by a new bot from bots
+    public BatchRunner(long seed, int games, int maxLevels, int maxTicks, Supplier<Bot> bots) {
+        this.seed = seed;
+        this.games = games;
+        this.maxLevels = maxLevels;
+        this.maxTicks = maxTicks;
+        this.bots = bots;
+        this.scores = new long[games];
+        this.levels = new int[games];
+        this.ticks = new long[games];
+        this.hashes = new long[games];
+    }
+
+    public void setHazardWaves(boolean hazardWaves) { this.hazardWaves = hazardWaves; }
+    public void setTrigTable(boolean trigTable) { this.trigTable = trigTable; }
+    public void setWorldSize(int width, int height) { worldWidth = width; worldHeight = height; }
+
+    // play every run on a pool of the given number of threads, returning once they have all finished
+    public void run(int threads) {
+        this.threads = threads;
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        long start = System.nanoTime();
+        try {
+            pool.invoke(new RunTask(0, games));
+        } finally {
+            pool.shutdown();
+        }
+        seconds = (System.nanoTime() - start)/1e9;
+    }
+
+    // play run i, called on a pool thread
+    private void play(int i) {
+        HeadlessEngine engine = new HeadlessEngine(Game.hash(seed, i), maxTicks, null);
+        engine.setHazardWaves(hazardWaves);
+        engine.setTrigTable(trigTable);
+        engine.setWorldSize(worldWidth, worldHeight);
+        engine.setBot(bots.get());
+
+        scores[i] = engine.playRun(maxLevels);
+        levels[i] = engine.getLevelsPlayed();
+        ticks[i] = engine.getTotalTicks();
+        hashes[i] = engine.getHash();
+    }
+
+    public int getGames() { return games; }
+    public double getSeconds() { return seconds; }
+    public long getScore(int i) { return scores[i]; }
+    public int getLevel(int i) { return levels[i]; }
+
+    public long getTotalTicks() {
+        long total = 0;
+        for (long t : ticks)
+            total += t;
+        return total;
+    }
+
+    // every run's hash, combined in run order
+    public long getHash() {
+        long h = 0;
+        for (long run : hashes)
+            h = Game.hash(h, run);
+        return h;
+    }
+
+    // scores, levels reached and throughput, for printing
+    public List<String> summary() {
+        long[] sorted = scores.clone();
+        Arrays.sort(sorted);
+        long totalScore = 0;
+        long totalLevels = 0;
+        int bestLevel = 0;
+        for (int i = 0; i < games; i++) {
+            totalScore += scores[i];
+            totalLevels += levels[i];
+            bestLevel = Math.max(bestLevel, levels[i]);
+        }
+        long totalTicks = getTotalTicks();
+
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("seed %d: %d runs on %d threads, %d levels, %d ticks in %.2fs",
+                seed, games, threads, totalLevels, totalTicks, seconds));
+        lines.add(String.format("score mean %.0f, median %d, p90 %d, best %d",
+                totalScore/(double)games, percentile(sorted, 0.5), percentile(sorted, 0.9), sorted[games - 1]));
+        lines.add(String.format("level reached mean %.2f, best %d", totalLevels/(double)games, bestLevel));
+        lines.add(String.format("%.0f runs/sec, %.0f ticks/sec, hash %016x", games/seconds, totalTicks/seconds, getHash()));
+        return lines;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int)(p*sorted.length))];
+    }
+
+    private final class RunTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+
+        RunTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                play(from);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new RunTask(from, mid), new RunTask(mid, to));
+        }
+    }
+}
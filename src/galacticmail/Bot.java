@@ -0,0 +1,24 @@
+package galacticmail;
+
+/**
+ * Plays the game in place of the keyboard (GameController), e.g. the headless Autopilot, or a strategy being
+ * evaluated over thousands of games with BatchRunner.
+ * Once a tick, before anything moves, the game shows the bot a read-only Snapshot of itself and the bot steers
+ * the rocket through Controls. Bots run on the simulation thread, under the game lock, so act() should be quick.
+ * Bot input isn't recorded by a Replay.Recorder: a bot game is reproduced by its seed and the bot instead.
+ */
+public interface Bot {
+    // look at the game and steer the rocket for this tick
+    void act(Snapshot game, Controls controls);
+
+    /**
+     * What a bot can do with the rocket: the same as the arrow keys and space bar, except rotation by any angle.
+     */
+    interface Controls {
+        // turn by degrees (clockwise), any amount while stopped on a moon, slower the faster the rocket is moving
+        void rotate(float degrees);
+
+        // leave the moon the rocket is standing on, if it is stopped
+        void takeoff();
+    }
+}
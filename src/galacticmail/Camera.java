@@ -0,0 +1,71 @@
+package galacticmail;
+
+/**
+ * Maps world positions to the screen.
+ * In a world the size of the screen the camera never moves and positions are drawn as they are.
+ * In a larger world it keeps the rocket in the middle of the screen. The world wraps around, so
+ * everything is drawn at whichever of its wrapped positions lands on (or just off) the screen.
+ */
+public class Camera {
+    private static final float MARGIN = 256; // positions this far off the left/top of the screen stay there
+
+    private final float worldWidth;
+    private final float worldHeight;
+    private final boolean fixed; // world is the size of the screen
+    private float x = 0;         // top left of the view, in the world
+    private float y = 0;
+    private float prevX = 0;     // at the start of the tick, for interpolated rendering
+    private float prevY = 0;
+    private float viewX = 0;     // interpolated, for the frame being drawn (see frame)
+    private float viewY = 0;
+
+    public Camera(float worldWidth, float worldHeight) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.fixed = worldWidth == Game.WIDTH && worldHeight == Game.HEIGHT;
+    }
+
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public boolean isFixed() { return fixed; }
+
+    // center the view on target, called once per tick
+    public void follow(Collideable target) {
+        prevX = x;
+        prevY = y;
+        if (fixed)
+            return;
+
+        x = floorMod(target.getX() + target.getWidth()/2 - Game.WIDTH/2, worldWidth);
+        y = floorMod(target.getY() + target.getHeight()/2 - Game.HEIGHT/2, worldHeight);
+    }
+
+    // center the view on target without interpolating from the old view, e.g. at the start of a level
+    public void reset(Collideable target) {
+        follow(target);
+        prevX = x;
+        prevY = y;
+    }
+
+    // set up the view for a frame drawn alpha (0 -> 1) of the way from the last tick to the current one
+    public void frame(float alpha) {
+        viewX = Collideable.interpolate(prevX, x, alpha, worldWidth);
+        viewY = Collideable.interpolate(prevY, y, alpha, worldHeight);
+    }
+
+    // screen position of something that moved from prev to cur during the last tick (see frame)
+    public float screenX(float prev, float cur, float alpha) {
+        float wx = Collideable.interpolate(prev, cur, alpha, worldWidth);
+        return fixed ? wx : floorMod(wx - viewX + MARGIN, worldWidth) - MARGIN;
+    }
+
+    public float screenY(float prev, float cur, float alpha) {
+        float wy = Collideable.interpolate(prev, cur, alpha, worldHeight);
+        return fixed ? wy : floorMod(wy - viewY + MARGIN, worldHeight) - MARGIN;
+    }
+
+    static float floorMod(float value, float span) {
+        float m = value % span;
+        return m < 0 ? m + span : m;
+    }
+}
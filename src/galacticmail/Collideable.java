@@ -0,0 +1,104 @@
+package galacticmail;
+
+import java.awt.Rectangle;
+
+/**
+ * An interface describing a collideable object (something that can be checked for collision).
+ * Allows for checking for collisions between objects extending this interface.
+ * In addition, also allows for teleporting an object to the other side of the screen when it goes out of bounds.
+ * Bouncing handles collisions (if applicable)
+ */
+public interface Collideable {
+    float getX();
+    float getY();
+    float getVX();
+    float getVY();
+    float getWidth();
+    float getHeight();
+    void teleport(float x, float y);
+    void setVelocity(float vx, float vy);
+
+    // how far the object moved during the last tick (after any wrap, this is still the distance it travelled)
+    default float getDX() { return getVX(); }
+    default float getDY() { return getVY(); }
+
+    static boolean collide(Collideable a, Collideable b) {
+        // less than sum of radii
+        float dx = a.getX() - b.getX();
+        float dy = a.getY() - b.getY();
+        float r1 = Math.max(a.getWidth(), a.getHeight())/2 + 1.0f;
+        float r2 = Math.max(b.getHeight(), b.getWidth())/2 + 1.0f;
+        float d = r1 + r2;
+        return dx*dx + dy*dy <= d*d;
+        /*
+        Rectangle r1 = new Rectangle((int)a.getX(), (int)a.getY(), (int)a.getWidth(), (int)a.getHeight());
+        Rectangle r2 = new Rectangle((int)b.getX(), (int)b.getY(), (int)b.getWidth(), (int)b.getHeight());
+
+        return r1.intersects(r2);
+        */
+    }
+
+    // Swept version of collide: the earliest time during the last tick (0 -> 1) at which the two objects touched,
+    // or -1 if they didn't. Catches fast objects that passed through each other between ticks.
+    // Each object is swept back along its own displacement from where it is now, so an object that wrapped around
+    // the screen this tick is swept along the edge it came in from rather than across the whole screen.
+    static float timeOfImpact(Collideable a, Collideable b) {
+        float r1 = Math.max(a.getWidth(), a.getHeight())/2 + 1.0f;
+        float r2 = Math.max(b.getHeight(), b.getWidth())/2 + 1.0f;
+        float dx = a.getDX() - b.getDX();
+        float dy = a.getDY() - b.getDY();
+        return timeOfImpact(a.getX() - b.getX() - dx, a.getY() - b.getY() - dy, dx, dy, r1 + r2);
+    }
+
+    // The earliest time t (0 -> 1) at which the point (x, y) + t*(dx, dy) is within r of the origin, or -1 if never.
+    static float timeOfImpact(float x, float y, float dx, float dy, float r) {
+        float c = x*x + y*y - r*r;
+        if (c <= 0)
+            return 0; // already touching at the start of the tick
+
+        float a = dx*dx + dy*dy;
+        float b = x*dx + y*dy;
+        if (b >= 0 || a == 0)
+            return -1; // moving apart or not moving
+
+        float disc = b*b - a*c;
+        if (disc < 0)
+            return -1; // closest approach is still too far
+
+        float t = (-b - (float)Math.sqrt(disc))/a;
+        return t <= 1 ? t : -1;
+    }
+
+    // Teleport an object that goes off the edge of a world of the given size to the other side.
+    static void wrap(Collideable a, float width, float height) {
+        if (a.getX() < -a.getWidth())
+            a.teleport(width, a.getY());
+        else if (a.getX() > width)
+            a.teleport(0, a.getY());
+
+        if (a.getY() < -a.getHeight())
+            a.teleport(a.getX(), height);
+        else if (a.getY() > height)
+            a.teleport(a.getX(), 0);
+    }
+
+    // Interpolate between the previous and current tick positions for rendering.
+    // If the object wrapped around the screen during the tick, snap to the current position.
+    static float interpolate(float prev, float cur, float alpha, float span) {
+        if (Math.abs(cur - prev) > span/2)
+            return cur;
+        return prev + (cur - prev)*alpha;
+    }
+
+    // Swap the velocities (assumes the mass of all collideables is 1)
+    // Elastic-collision
+    static void bounce(Collideable a, Collideable b) {
+        float vx1 = a.getVX();
+        float vy1 = a.getVY();
+        float vx2 = b.getVX();
+        float vy2 = b.getVY();
+
+        a.setVelocity(vx2+0.1f, vy2-0.1f);
+        b.setVelocity(vx1-0.1f, vy1+0.1f);
+    }
+}
@@ -0,0 +1,293 @@
+package galacticmail;
+
+import java.util.Arrays;
+
+/**
+ * Structure-of-arrays storage for a group of entities (e.g. all the asteroids).
+ * Positions, velocities and sizes live in primitive arrays indexed by slot, and live entities are always packed
+ * into slots 0 .. size-1: removing one moves the last entity into its slot (swap-remove).
+ * Entity classes such as Asteroid and Moon are thin views over their entity. Each view owns a fixed id, which
+ * the store maps to its current slot. Removed views stay in the store, parked past the live slots, and
+ * are handed back out by parked() so that spawning and despawning don't allocate once the pool is big enough.
+ * Anything that holds on to an entity across ticks keeps a handle (id plus generation) instead of a reference.
+ * Removing the entity bumps its generation, so an old handle no longer resolves (see slotOf), even after the view
+ * has been reused for a new entity.
+ * Movement, wrapping and collisions run as plain loops over the arrays instead of going through Collideable.
+ */
+public class EntityStore<T extends Collideable> {
+    public static final long NONE = -1; // a handle that never resolves
+
+    float[] x;
+    float[] y;
+    float[] prevX; // position at the start of the tick, for interpolated rendering
+    float[] prevY;
+    float[] vx;
+    float[] vy;
+    float[] width;
+    float[] height;
+    float[] radius; // collision radius, as used by Collideable.collide
+
+    private Object[] views; // by slot, parked views follow the live ones
+    private int[] ids;      // id of the view in each slot
+    private int[] slots;    // slot of each id
+    private int[] generations; // by id, bumped every time the entity is removed
+    private int size = 0;   // live entities, in slots [0, size)
+    private int pooled = 0; // live plus parked views, in slots [0, pooled)
+    private float maxRadius = 0;
+    private float maxStep = 0; // bound on how far any entity moved in the last update, for swept queries
+    private float worldWidth = Game.WIDTH; // where entities wrap around
+    private float worldHeight = Game.HEIGHT;
+
+    public EntityStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        x = new float[capacity];
+        y = new float[capacity];
+        prevX = new float[capacity];
+        prevY = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        radius = new float[capacity];
+        views = new Object[capacity];
+        ids = new int[capacity];
+        slots = new int[capacity];
+        generations = new int[capacity];
+    }
+
+    public int size() { return size; }
+    public float getMaxRadius() { return maxRadius; }
+    public float getMaxStep() { return maxStep; }
+    void setMaxStep(float maxStep) { this.maxStep = maxStep; }
+    public float getWorldWidth() { return worldWidth; }
+    public float getWorldHeight() { return worldHeight; }
+
+    // wrap entities around a world of this size instead of the screen
+    public void setWorldSize(float width, float height) { worldWidth = width; worldHeight = height; }
+
+    @SuppressWarnings("unchecked")
+    public T get(int i) { return (T)views[i]; }
+
+    // current slot of a view's id (see add)
+    public int slot(int id) { return slots[id]; }
+
+    // a handle to the entity in slot i, valid until it is removed
+    public long handle(int i) {
+        int id = ids[i];
+        return (long)generations[id] << 32 | id;
+    }
+
+    // the slot of the entity a handle refers to, or -1 if it has been removed since
+    public int slotOf(long handle) {
+        if (handle == NONE)
+            return -1;
+
+        int id = (int)handle;
+        if (id >= pooled || generations[id] != (int)(handle >>> 32) || slots[id] >= size)
+            return -1;
+        return slots[id];
+    }
+
+    // a removed view that can be spawned again, or null if there are none
+    @SuppressWarnings("unchecked")
+    public T parked() { return size < pooled ? (T)views[size] : null; }
+
+    // store a new entity and return the id of its view
+    public int add(T view, float x, float y, float vx, float vy, float width, float height) {
+        if (pooled == this.x.length)
+            grow(pooled*2);
+
+        int id = pooled++;
+        views[id] = view;
+        ids[id] = id;
+        slots[id] = id;
+        swap(size, id); // in front of any parked views
+        set(size++, x, y, vx, vy, width, height);
+        return id;
+    }
+
+    // bring a parked view (see parked) back as a new entity
+    public void respawn(int id, float x, float y, float vx, float vy, float width, float height) {
+        if (slots[id] < size)
+            throw new IllegalStateException("entity " + id + " is still live");
+
+        swap(size, slots[id]);
+        set(size++, x, y, vx, vy, width, height);
+    }
+
+    // remove the entity in slot i, the last live entity moves into slot i
+    public void remove(int i) {
+        if (i >= size)
+            return;
+
+        generations[ids[i]]++;
+        swap(i, --size);
+    }
+
+    // remove every entity, parking all the views
+    public void clear() {
+        for (int i = 0; i < size; i++)
+            generations[ids[i]]++;
+        size = 0;
+        maxRadius = 0;
+        maxStep = 0;
+    }
+
+    private void set(int i, float x, float y, float vx, float vy, float width, float height) {
+        this.x[i] = x;
+        this.y[i] = y;
+        this.prevX[i] = x;
+        this.prevY[i] = y;
+        this.vx[i] = vx;
+        this.vy[i] = vy;
+        this.width[i] = width;
+        this.height[i] = height;
+        this.radius[i] = Math.max(width, height)/2 + 1.0f;
+        maxRadius = Math.max(maxRadius, radius[i]);
+    }
+
+    // exchange two slots, along with their views and ids
+    private void swap(int i, int j) {
+        if (i == j)
+            return;
+
+        swap(x, i, j);
+        swap(y, i, j);
+        swap(prevX, i, j);
+        swap(prevY, i, j);
+        swap(vx, i, j);
+        swap(vy, i, j);
+        swap(width, i, j);
+        swap(height, i, j);
+        swap(radius, i, j);
+
+        Object view = views[i];
+        views[i] = views[j];
+        views[j] = view;
+
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        slots[ids[i]] = i;
+        slots[ids[j]] = j;
+    }
+
+    private static void swap(float[] a, int i, int j) {
+        float t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    // move every live entity by its velocity and wrap it around the world (see Collideable.wrap)
+    public void update() { maxStep = update(0, size); }
+
+    // update only the slots in [from, to), returns a bound on how far any of them moved (see setMaxStep)
+    public float update(int from, int to) {
+        float step = 0;
+        for (int i = from; i < to; i++) {
+            step = Math.max(step, Math.abs(vx[i]) + Math.abs(vy[i]));
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            x[i] += vx[i];
+            y[i] += vy[i];
+
+            if (x[i] < -width[i])
+                x[i] = worldWidth;
+            else if (x[i] > worldWidth)
+                x[i] = 0;
+
+            if (y[i] < -height[i])
+                y[i] = worldHeight;
+            else if (y[i] > worldHeight)
+                y[i] = 0;
+        }
+        return step;
+    }
+
+    // Bounce every colliding pair (see Collideable.bounce), visiting pairs in ascending (i, j) order
+    // returns the number of pairs that bounced
+    public int bouncePairs(SpatialGrid grid) {
+        int pairs = 0;
+        for (int i = 0; i < size; i++) {
+            int n = grid.query(x[i], y[i], radius[i] + maxRadius);
+
+            for (int k = 0; k < n; k++) {
+                int j = grid.candidate(k);
+                if (j > i && collide(i, j)) {
+                    bounce(i, j);
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    // same as Collideable.bounce
+    void bounce(int i, int j) {
+        float vx1 = vx[i], vy1 = vy[i];
+        vx[i] = vx[j] + 0.1f;
+        vy[i] = vy[j] - 0.1f;
+        vx[j] = vx1 - 0.1f;
+        vy[j] = vy1 + 0.1f;
+    }
+
+    // returns the live slot c hit first during the last tick (see Collideable.timeOfImpact), or -1 if there is none
+    // entities hit at the same time are returned lowest slot first
+    public int firstCollision(Collideable c, SpatialGrid grid) {
+        float cx = c.getX(), cy = c.getY();
+        float cdx = c.getDX(), cdy = c.getDY();
+        float r = SpatialGrid.radius(c);
+
+        // search around the middle of c's sweep, far enough to reach anything that could have crossed it
+        float reach = r + maxRadius + (Math.abs(cdx) + Math.abs(cdy))/2 + maxStep;
+        int n = grid.query(cx - cdx/2, cy - cdy/2, reach);
+
+        int first = -1;
+        float firstTime = 2;
+        for (int k = 0; k < n; k++) {
+            int j = grid.candidate(k);
+            float dx = cdx - vx[j]; // relative motion over the tick
+            float dy = cdy - vy[j];
+            float t = Collideable.timeOfImpact(cx - x[j] - dx, cy - y[j] - dy, dx, dy, r + radius[j]);
+
+            if (t >= 0 && t < firstTime) {
+                first = j;
+                firstTime = t;
+            }
+        }
+        return first;
+    }
+
+    // mix the state of slot i into a hash (see Game.stateHash)
+    long hash(long h, int i) {
+        h = Game.hash(h, i);
+        h = Game.hash(h, Float.floatToIntBits(x[i]));
+        h = Game.hash(h, Float.floatToIntBits(y[i]));
+        h = Game.hash(h, Float.floatToIntBits(vx[i]));
+        return Game.hash(h, Float.floatToIntBits(vy[i]));
+    }
+
+    // same test as Collideable.collide
+    boolean collide(int i, int j) {
+        float dx = x[i] - x[j];
+        float dy = y[i] - y[j];
+        float d = radius[i] + radius[j];
+        return dx*dx + dy*dy <= d*d;
+    }
+
+    private void grow(int capacity) {
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        radius = Arrays.copyOf(radius, capacity);
+        views = Arrays.copyOf(views, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+    }
+}
@@ -0,0 +1,269 @@
+package galacticmail;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Keeps a RaceClient's copy of one of the RaceServer's entity stores (the moons or the asteroids) up to date,
+ * sending as little as possible each tick.
+ * Moons and asteroids fly in straight lines between bounces, so the client just keeps moving its copies
+ * along their last known velocity with EntityStore.update, the same code that moves the real ones.
+ * The server keeps a shadow store holding exactly what every client has (it moves the shadow the same way, with
+ * the same float arithmetic), and only sends an entity when the real one has got away from its shadow:
+ * when it bounces, wraps at a different moment, or drifts more than MAX_ERROR from rounding.
+ * So most ticks carry a handful of entities however many there are, and the server compares floats rather than
+ * serializing every entity. The same bytes go to every client.
+ *
+ * An update is: the entities removed, the entities spawned (their full quantized state, plus frame and scale for
+ * moons or angle for asteroids) and the entities changed, each as the difference between the real quantized
+ * values and the shadow's, which the client can work out too. Entities are named by their id in the server's store.
+ * Positions are quantized to 1/POSITION_SCALE pixels and velocities to 1/VELOCITY_SCALE pixels per tick, and the
+ * shadow is set to the quantized values, so server and client round the same way.
+ * A client that joins late (or falls behind) gets writeAll instead: every shadow entity with exact floats.
+ */
+final class EntitySync<T extends Collideable> {
+    static final float POSITION_SCALE = 8;
+    static final float VELOCITY_SCALE = 1024;
+    static final float MAX_ERROR = 0.5f; // pixels
+
+    private final boolean moons; // or asteroids, for the extra state sent with new entities
+    private final EntityStore<T> copy; // server: the shadow. client: the copy that's drawn
+    private int[] local = new int[64];     // copy id of each server id, -1 if none
+    private long[] handles = new long[64]; // server only: handle of the real entity for each copy id
+
+    // scratch, by entry in the update being written
+    private int[] removed = new int[64];
+    private int[] spawned = new int[64];
+    private int[] changed = new int[64];
+
+    EntitySync(boolean moons, EntityStore<T> copy) {
+        this.moons = moons;
+        this.copy = copy;
+        Arrays.fill(local, -1);
+    }
+
+    EntityStore<T> getCopy() { return copy; }
+
+    // forget every entity, e.g. when a level starts
+    void clear() {
+        copy.clear();
+        Arrays.fill(local, -1);
+    }
+
+    // server: move the shadow on a tick, then write what the clients need to catch up with store
+    void write(ByteBuffer out, EntityStore<T> store) {
+        copy.update();
+
+        int removedCount = 0;
+        for (int j = copy.size() - 1; j >= 0; j--) {
+            long handle = handles[id(copy, j)];
+            if (store.slotOf(handle) < 0) {
+                removed = put(removed, removedCount++, (int)handle);
+                local[(int)handle] = -1;
+                copy.remove(j);
+            }
+        }
+
+        int spawnedCount = 0, changedCount = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int id = (int)store.handle(i);
+            int c = id < local.length ? local[id] : -1;
+            if (c < 0) {
+                spawned = put(spawned, spawnedCount++, i);
+                continue;
+            }
+
+            int s = copy.slot(c);
+            if (q(store.vx[i], VELOCITY_SCALE) != q(copy.vx[s], VELOCITY_SCALE)
+                    || q(store.vy[i], VELOCITY_SCALE) != q(copy.vy[s], VELOCITY_SCALE)
+                    || Math.abs(store.x[i] - copy.x[s]) > MAX_ERROR || Math.abs(store.y[i] - copy.y[s]) > MAX_ERROR)
+                changed = put(changed, changedCount++, i);
+        }
+
+        putIds(out, removed, removedCount);
+
+        Wire.putVarint(out, spawnedCount);
+        for (int k = 0; k < spawnedCount; k++) {
+            int i = spawned[k];
+            int id = (int)store.handle(i);
+            Wire.putVarint(out, id);
+            int qx = q(store.x[i], POSITION_SCALE), qy = q(store.y[i], POSITION_SCALE);
+            int qvx = q(store.vx[i], VELOCITY_SCALE), qvy = q(store.vy[i], VELOCITY_SCALE);
+            Wire.putSigned(out, qx);
+            Wire.putSigned(out, qy);
+            Wire.putSigned(out, qvx);
+            Wire.putSigned(out, qvy);
+            putExtra(out, store.get(i));
+            int c = add(id, store, i, qx/POSITION_SCALE, qy/POSITION_SCALE, qvx/VELOCITY_SCALE, qvy/VELOCITY_SCALE);
+            handles = put(handles, c, store.handle(i));
+        }
+
+        Wire.putVarint(out, changedCount);
+        for (int k = 0; k < changedCount; k++) {
+            int i = changed[k];
+            int id = (int)store.handle(i);
+            int s = copy.slot(local[id]);
+            Wire.putVarint(out, id);
+            int qx = q(store.x[i], POSITION_SCALE), qy = q(store.y[i], POSITION_SCALE);
+            int qvx = q(store.vx[i], VELOCITY_SCALE), qvy = q(store.vy[i], VELOCITY_SCALE);
+            Wire.putSigned(out, qx - q(copy.x[s], POSITION_SCALE));
+            Wire.putSigned(out, qy - q(copy.y[s], POSITION_SCALE));
+            Wire.putSigned(out, qvx - q(copy.vx[s], VELOCITY_SCALE));
+            Wire.putSigned(out, qvy - q(copy.vy[s], VELOCITY_SCALE));
+            set(s, qx/POSITION_SCALE, qy/POSITION_SCALE, qvx/VELOCITY_SCALE, qvy/VELOCITY_SCALE);
+        }
+    }
+
+    // server: every shadow entity exactly, for a client starting from nothing (see readAll).
+    // store is the one last passed to write, the extra state comes from its views
+    void writeAll(ByteBuffer out, EntityStore<T> store) {
+        Wire.putVarint(out, copy.size());
+        for (int s = 0; s < copy.size(); s++) {
+            long handle = handles[id(copy, s)];
+            Wire.putVarint(out, (int)handle);
+            out.putFloat(copy.x[s]).putFloat(copy.y[s]).putFloat(copy.vx[s]).putFloat(copy.vy[s]);
+            putExtra(out, store.get(store.slotOf(handle)));
+        }
+    }
+
+    // client: apply an update written by write
+    void read(ByteBuffer in) {
+        copy.update();
+
+        int removedCount = (int)Wire.getVarint(in);
+        int id = -1;
+        for (int k = 0; k < removedCount; k++) {
+            id += 1 + (int)Wire.getVarint(in);
+            copy.remove(copy.slot(local[id]));
+            local[id] = -1;
+        }
+
+        int spawnedCount = (int)Wire.getVarint(in);
+        for (int k = 0; k < spawnedCount; k++) {
+            id = (int)Wire.getVarint(in);
+            float x = Wire.getSigned(in)/POSITION_SCALE, y = Wire.getSigned(in)/POSITION_SCALE;
+            float vx = Wire.getSigned(in)/VELOCITY_SCALE, vy = Wire.getSigned(in)/VELOCITY_SCALE;
+            restore(in, id, x, y, vx, vy);
+        }
+
+        int changedCount = (int)Wire.getVarint(in);
+        for (int k = 0; k < changedCount; k++) {
+            id = (int)Wire.getVarint(in);
+            int s = copy.slot(local[id]);
+            float x = (q(copy.x[s], POSITION_SCALE) + Wire.getSigned(in))/POSITION_SCALE;
+            float y = (q(copy.y[s], POSITION_SCALE) + Wire.getSigned(in))/POSITION_SCALE;
+            float vx = (q(copy.vx[s], VELOCITY_SCALE) + Wire.getSigned(in))/VELOCITY_SCALE;
+            float vy = (q(copy.vy[s], VELOCITY_SCALE) + Wire.getSigned(in))/VELOCITY_SCALE;
+            set(s, x, y, vx, vy);
+        }
+    }
+
+    // client: replace the copy with one written by writeAll
+    void readAll(ByteBuffer in) {
+        clear();
+        int count = (int)Wire.getVarint(in);
+        for (int k = 0; k < count; k++) {
+            int id = (int)Wire.getVarint(in);
+            restore(in, id, in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+        }
+    }
+
+    // client: furthest any copy is from the entity it copies in store (the server's), or -1 if one is missing
+    float error(EntityStore<T> store) {
+        if (store.size() != copy.size())
+            return -1;
+
+        float error = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int id = (int)store.handle(i);
+            if (id >= local.length || local[id] < 0)
+                return -1;
+
+            int s = copy.slot(local[id]);
+            error = Math.max(error, Math.max(Math.abs(store.x[i] - copy.x[s]), Math.abs(store.y[i] - copy.y[s])));
+        }
+        return error;
+    }
+
+    // removed ids ascending, each as the gap from the last, so they stay one byte
+    private static void putIds(ByteBuffer out, int[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        Wire.putVarint(out, count);
+        int last = -1;
+        for (int k = 0; k < count; k++) {
+            Wire.putVarint(out, ids[k] - last - 1);
+            last = ids[k];
+        }
+    }
+
+    private void putExtra(ByteBuffer out, T view) {
+        if (moons) {
+            Moon moon = (Moon)view;
+            Wire.putVarint(out, moon.getFrame());
+            out.putFloat(moon.getScale());
+        } else {
+            out.putFloat(((Asteroid)view).getAngle());
+        }
+    }
+
+    // client: a new copy of server entity id, reading its extra state
+    @SuppressWarnings("unchecked")
+    private void restore(ByteBuffer in, int id, float x, float y, float vx, float vy) {
+        Assets assets = Assets.get();
+        if (moons) {
+            int frame = (int)Wire.getVarint(in);
+            Moon.restore((EntityStore<Moon>)copy, assets.moon, x, y, vx, vy, frame, in.getFloat(), 64, 64, 8);
+        } else {
+            Asteroid.restore((EntityStore<Asteroid>)copy, assets.asteroid, x, y, vx, vy, in.getFloat());
+        }
+        local = ensure(local, id + 1);
+        local[id] = id(copy, copy.size() - 1); // restored into the last live slot
+    }
+
+    // server: a shadow of the entity in slot i of store, with server id id. returns its copy id
+    private int add(int id, EntityStore<T> store, int i, float x, float y, float vx, float vy) {
+        int c;
+        if (copy.parked() != null) {
+            c = id(copy, copy.size());
+            copy.respawn(c, x, y, vx, vy, store.width[i], store.height[i]);
+        } else { // the shadow holds real views, only so that parked() finds them again. they aren't used otherwise
+            c = copy.add(store.get(i), x, y, vx, vy, store.width[i], store.height[i]);
+        }
+        local = ensure(local, id + 1);
+        local[id] = c;
+        return c;
+    }
+
+    private void set(int s, float x, float y, float vx, float vy) {
+        copy.x[s] = x;
+        copy.y[s] = y;
+        copy.vx[s] = vx;
+        copy.vy[s] = vy;
+    }
+
+    private static int id(EntityStore<?> store, int slot) { return (int)store.handle(slot); }
+    private static int q(float value, float scale) { return Math.round(value*scale); }
+
+    private static int[] ensure(int[] a, int length) {
+        if (a.length >= length)
+            return a;
+        int old = a.length;
+        a = Arrays.copyOf(a, Math.max(length, old*2));
+        Arrays.fill(a, old, a.length, -1);
+        return a;
+    }
+
+    private static int[] put(int[] a, int k, int value) {
+        if (k == a.length)
+            a = Arrays.copyOf(a, k*2);
+        a[k] = value;
+        return a;
+    }
+
+    private static long[] put(long[] a, int k, long value) {
+        if (k >= a.length)
+            a = Arrays.copyOf(a, Math.max(k + 1, a.length*2));
+        a[k] = value;
+        return a;
+    }
+}
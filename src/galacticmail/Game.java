@@ -0,0 +1,836 @@
+package galacticmail;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Random;
+
+public final class Game extends JPanel {
+    public static final int WIDTH = 640*2;
+    public static final int HEIGHT = 480*2;
+    public static final int TICKS_PER_SECOND = 30; // nominal tick rate, entity speeds are in pixels per tick
+    private static final int WAVE_TICKS = 10*TICKS_PER_SECOND;   // a hazard wave arrives this often
+    private static final int WAVE_LIFETIME = 8*TICKS_PER_SECOND; // and its asteroids are gone again after this long
+    private static final int WAVE_SIZE = 4;
+    private static final int HIGH_SCORES = 100; // best runs kept in the ScoreLog's index
+    private static final int RACE_PORT = 7413;  // default for --server and --connect
+
+    private volatile boolean win = false;
+    private volatile boolean running = false;
+    private JFrame frame; // null until openWindow() is called, and always when running headless
+    private Rocket player;
+    private Rocket[] racers = new Rocket[0]; // the other players' rockets in a race (see RaceServer)
+    private Image background;
+    // stores and grids are kept for the whole session, each level clears them and reuses the pooled entities
+    private final EntityStore<Moon> moons = new EntityStore<>(16);
+    private final EntityStore<Asteroid> asteroids = new EntityStore<>(64);
+    private Hud hud; // created on first render
+    private SpriteBatch sprites; // draws the sprites out of the SpriteAtlas, if not null
+    private boolean drawn = false; // levels make their sprites up front, see setDrawn
+    private final SpatialGrid moonGrid;
+    private final SpatialGrid asteroidGrid;
+    private final World world; // null when the world is the size of the screen
+    private final Camera camera;
+    private ParallelPhysics physics; // null to run physics on the simulation thread
+    private Random rng;
+    private long ticks = 0;
+    private int level;
+    private int score; // score the level started with
+    private final Metrics metrics = new Metrics();
+    private boolean showMetrics = false; // metrics overlay toggled with F3
+    private int collisionPairs = 0; // pairs bounced in the last tick
+    private boolean hazardWaves = false;
+    private long[] waveAsteroids = new long[16]; // handles of the asteroids spawned by waves
+    private long[] waveExpiry = new long[16];    // and the tick each of them leaves on
+    private int waveCount = 0;
+
+    private final InputQueue input = new InputQueue(256);
+    private int heldKeys = 0; // bitmap of InputQueue keys currently held down
+    private boolean continueRequested = false; // enter pressed on the win/lose screen
+    private Replay.Recorder recorder; // records the input consumed each tick, if not null
+    private Replay.Reader replay;     // input comes from here instead of the keyboard, if not null
+    private ScoreLog scores;          // runs are recorded here when they end, if not null
+    private Bot bot;                  // steers the rocket each tick, if not null
+    private Snapshot snapshot;        // what the bot sees
+    private final Bot.Controls controls = new Bot.Controls() { // what the bot steers the player with, rather than the Rocket itself
+        @Override
+        public void rotate(float degrees) { player.rotate(degrees); }
+
+        @Override
+        public void takeoff() { player.takeoff(); }
+    };
+    private final LevelLayout layout = new LevelLayout(); // the next level's moons and asteroids
+    private Thread preparing; // generating layout in the background, if not null
+    private int[] runLandings = new int[64]; // ticks between landings in the levels of this run already won
+    private int runLandingCount = 0;
+
+    public Game(int level, int score) {
+        this(level, score, new Random(), null);
+    }
+
+    // all randomness in the level comes from rng, so the same seed always plays out the same way
+    public Game(int level, int score, Random rng, ParallelPhysics physics) {
+        this(level, score, rng, physics, WIDTH, HEIGHT);
+    }
+
+    // a world of the given size, with the view following the rocket if it is bigger than the screen (see World)
+    public Game(int level, int score, Random rng, ParallelPhysics physics, int worldWidth, int worldHeight) {
+        this.rng = rng;
+        this.physics = physics;
+        this.world = worldWidth == WIDTH && worldHeight == HEIGHT ? null : new World(worldWidth, worldHeight);
+        this.camera = new Camera(worldWidth, worldHeight);
+        this.moonGrid = new SpatialGrid(128, 128, worldWidth, worldHeight);
+        this.asteroidGrid = new SpatialGrid(128, 128, worldWidth, worldHeight);
+        moons.setWorldSize(worldWidth, worldHeight);
+        asteroids.setWorldSize(worldWidth, worldHeight);
+        reset(level, score);
+    }
+
+    // throw away the current level and generate a new one, reusing the window and loaded assets
+    public synchronized void reset(int level, int score) {
+        Assets assets = Assets.get();
+
+        this.level = level;
+        this.score = score;
+        this.ticks = 0;
+        this.win = false;
+        this.continueRequested = false;
+        this.waveCount = 0;
+        input.clear(); // keys pressed on the win/lose screen don't carry over into the new level
+        heldKeys = 0;
+        moons.clear();
+        asteroids.clear();
+        moonGrid.clear();
+        asteroidGrid.clear();
+
+        // initialize player
+        background = assets.background;
+        if (player == null) {
+            player = new Rocket(assets.flying, assets.landed, score);
+            player.setWorldSize(moons.getWorldWidth(), moons.getWorldHeight());
+        } else {
+            player.reset(score);
+        }
+        player.spawn(WIDTH/2, HEIGHT/2);
+        camera.reset(player);
+        for (int r = 0; r < racers.length; r++) { // keep their own score through a race, start over with the player
+            racers[r].reset(level == 1 ? 0 : (int)racers[r].getScore());
+            spawnRacer(r);
+        }
+
+        if (awaitLayout() != level) // not prepared ahead (see prepareNextLevel), generate it now
+            layout.generate(rng, level, world != null, drawn, sprites != null);
+        if (world != null) { // chunks are generated as the camera reaches them
+            world.reset(layout.getWorldSeed(), level, 5 + level, player.getX(), player.getY());
+            world.stream(camera, moons, asteroids);
+        }
+        layout.apply(moons, asteroids);
+
+        running = true;
+        notifyAll(); // wake up the simulation thread
+    }
+
+    // open a window showing the game and listening for input
+    public void openWindow() {
+        frame = new JFrame();
+        frame.setResizable(false);
+        frame.setLocation(50, 50);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.add(this);
+        frame.addKeyListener(new GameController(this));
+        frame.setUndecorated(true);
+        frame.setSize(WIDTH, HEIGHT);
+        frame.setVisible(true);
+    }
+
+    public Rocket getPlayer() { return player; }
+    public int getRacerCount() { return racers.length + 1; }
+    public Rocket getRacer(int r) { return r == 0 ? player : racers[r - 1]; } // racer 0 is the player
+    public JFrame getFrame() { return frame; }
+    public EntityStore<Moon> getMoons() { return moons; }
+    public EntityStore<Asteroid> getAsteroids() { return asteroids; }
+    public World getWorld() { return world; }
+    public Camera getCamera() { return camera; }
+    public int getLevel() { return level; }
+    public long getTicks() { return ticks; }
+    public boolean isWin() { return win; }
+    public InputQueue getInput() { return input; }
+    public Metrics getMetrics() { return metrics; }
+    public boolean isShowingMetrics() { return showMetrics; }
+    public boolean isHazardWaves() { return hazardWaves; }
+    public boolean isTrigTable() { return player.isTrigTable(); }
+    public int getTicksPerSecond() { return player.getTicksPerSecond(); }
+
+    // whether the game is drawn at all. if so each level's sprites are made along with its layout, rather than by
+    // its first frame (see LevelLayout), otherwise they're never made
+    public synchronized void setDrawn(boolean drawn) { this.drawn = drawn; }
+
+    // draw sprites in one pass out of the SpriteAtlas instead of one render call per entity (same picture)
+    public synchronized void setBatchedSprites(boolean batched) { sprites = batched ? new SpriteBatch() : null; }
+
+    // send a wave of short-lived asteroids in from the edges every WAVE_TICKS (off by default)
+    public synchronized void setHazardWaves(boolean hazardWaves) { this.hazardWaves = hazardWaves; }
+
+    // let bot steer the rocket, alongside any keyboard input (null for none)
+    public synchronized void setBot(Bot bot) {
+        this.bot = bot;
+        if (bot != null && snapshot == null)
+            snapshot = new Snapshot();
+    }
+
+    // compute the rocket's heading with the Trig table instead of Math (off by default)
+    public synchronized void setTrigTable(boolean trigTable) {
+        player.setTrigTable(trigTable);
+        for (Rocket racer : racers)
+            racer.setTrigTable(trigTable);
+    }
+
+    // the rate the game is ticked at, which landings are scored by (TICKS_PER_SECOND by default)
+    public synchronized void setTicksPerSecond(int ticksPerSecond) {
+        player.setTicksPerSecond(ticksPerSecond);
+        for (Rocket racer : racers)
+            racer.setTicksPerSecond(ticksPerSecond);
+    }
+
+    // add another rocket, racing the player for the moons, returns its racer number (see getRacer).
+    // a racer that hits an asteroid is out until the next level, and the level is only lost once all of them are
+    public synchronized int addRacer() {
+        if (world != null)
+            throw new IllegalStateException("races are only run in a world the size of the screen");
+
+        Assets assets = Assets.get();
+        Rocket racer = new Rocket(assets.flying, assets.landed);
+        racer.setTrigTable(player.isTrigTable());
+        racer.setTicksPerSecond(player.getTicksPerSecond());
+        racers = Arrays.copyOf(racers, racers.length + 1);
+        racers[racers.length - 1] = racer;
+        spawnRacer(racers.length - 1);
+        return racers.length;
+    }
+
+    // line the racers up either side of the player
+    private void spawnRacer(int r) {
+        int side = r % 2 == 0 ? 1 : -1;
+        racers[r].spawn(WIDTH/2 + side*100*(r/2 + 1), HEIGHT/2);
+    }
+
+    // start the level that comes after the one just finished: a win moves on to the next level, carrying the score,
+    // anything else starts over
+    public synchronized void nextLevel() {
+        if (win) {
+            addLandings();
+            reset(level + 1, (int)(score + player.getScore()));
+        } else {
+            endRun();
+            reset(1, 0);
+        }
+    }
+
+    // start generating the level nextLevel() will start on a background thread, while the win/lose screen is up,
+    // so that moving on only has to swap it in. the level is the same as if it was generated by nextLevel()
+    public synchronized void prepareNextLevel() {
+        if (running || preparing != null)
+            return;
+
+        int next = win ? level + 1 : 1;
+        boolean largeWorld = world != null;
+        boolean drawn = this.drawn;
+        boolean atlas = sprites != null;
+        preparing = new Thread(() -> layout.generate(rng, next, largeWorld, drawn, atlas), "level-ahead");
+        preparing.setDaemon(true);
+        preparing.start();
+    }
+
+    // wait for the layout being prepared, if any, and return the level it's for (-1 if there isn't one)
+    private int awaitLayout() {
+        boolean interrupted = false;
+        while (preparing != null) {
+            try {
+                preparing.join();
+                preparing = null;
+            } catch (InterruptedException e) { // it's using rng, so it has to finish first
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return layout.getLevel();
+    }
+
+    // record finished runs in scores (not blocking on the file, see ScoreLog)
+    public synchronized void setScoreLog(ScoreLog scores) { this.scores = scores; }
+
+    // record the run so far as finished: when a level is lost, or the game is closed part way through
+    public synchronized void endRun() {
+        addLandings();
+        if (scores != null && (level > 1 || runLandingCount > 0))
+            scores.submit(level, player.getScore(), runLandings, runLandingCount);
+        runLandingCount = 0;
+    }
+
+    // add the landings of the level being left to the run's
+    private void addLandings() {
+        int count = player.getLandingCount();
+        if (runLandingCount + count > runLandings.length)
+            runLandings = Arrays.copyOf(runLandings, Math.max(runLandings.length*2, runLandingCount + count));
+        for (int k = 0; k < count; k++)
+            runLandings[runLandingCount++] = player.getLanding(k);
+    }
+
+    // record every tick's input from now on
+    public synchronized void record(Replay.Recorder recorder) { this.recorder = recorder; }
+
+    // finish the recording, if there is one
+    public synchronized void stopRecording() {
+        if (recorder != null)
+            recorder.close();
+        recorder = null;
+    }
+
+    // take input from a replay instead of the keyboard, the game must be fresh from the replay's seed
+    public synchronized void play(Replay.Reader replay) { this.replay = replay; }
+
+    // enter was pressed: move on from the win/lose screen (ignored while the level is still being played)
+    public synchronized void requestContinue() {
+        if (!running) {
+            continueRequested = true;
+            notifyAll();
+        }
+    }
+
+    // block until the player asks to move on from the win/lose screen
+    public synchronized void awaitContinue() throws InterruptedException {
+        while (!continueRequested)
+            wait();
+    }
+
+    // block until the level is won or lost
+    public synchronized void awaitFinished() throws InterruptedException {
+        while (running)
+            wait();
+    }
+
+    // block until a level is being played (see reset)
+    public synchronized void awaitRunning() throws InterruptedException {
+        while (!running)
+            wait();
+    }
+
+    // end the level
+    private void finish(boolean win) {
+        this.win = win;
+        running = false;
+        notifyAll();
+    }
+
+    public boolean isRunning() { return running; } // game is still active and rendering
+
+    // called once per simulation tick (the render thread locks on the game as well)
+    public synchronized void update() {
+        if (replay != null && !replay.tick())
+            return; // nothing more was recorded
+        if (recorder != null)
+            recorder.tick();
+
+        long start = System.nanoTime();
+        tick();
+        metrics.recordTick(System.nanoTime() - start, moons.size(), asteroids.size(), collisionPairs);
+    }
+
+    private void tick() {
+        if (bot != null) {
+            snapshot.capture(this);
+            bot.act(snapshot, controls);
+        }
+
+        ticks++;
+        collisionPairs = 0;
+        processInput();
+
+        if (remainingMoons() == 0) { // win state: no more moons
+            finish(true);
+            return;
+        }
+        if (allCrashed()) { // every racer left the race (see RaceServer)
+            finish(false);
+            return;
+        }
+
+        // remove destroyed moons, back to front since removing moves the last moon into the slot
+        for (int i = moons.size() - 1; i >= 0; i--) {
+            if (moons.get(i).isDestroyed()) {
+                moons.remove(i);
+                if (world != null)
+                    world.moonDelivered();
+            }
+        }
+
+        if (hazardWaves)
+            updateWaves();
+        if (world != null)
+            world.stream(camera, moons, asteroids); // load the chunks around the view, put the far ones to sleep
+
+        // update moon and asteroid positions
+        long start = System.nanoTime();
+        if (physics != null) {
+            physics.update(moons);
+            physics.update(asteroids);
+        } else {
+            moons.update();
+            asteroids.update();
+        }
+        long phase = System.nanoTime();
+        metrics.entityUpdate.record(phase - start);
+
+        // update player position, before the collision checks so that they sweep the rockets over this tick's motion
+        // just like everything else (see EntityStore.firstCollision)
+        for (int r = 0; r <= racers.length; r++) {
+            if (!getRacer(r).isCrashed())
+                getRacer(r).update();
+        }
+        camera.follow(player);
+        long moved = System.nanoTime();
+        metrics.playerUpdate.record(moved - phase);
+
+        // bring the broadphase grids up to date with the new positions
+        moonGrid.update(moons);
+        asteroidGrid.update(asteroids);
+
+        for (int r = 0; r <= racers.length; r++) {
+            Rocket rocket = getRacer(r);
+            if (rocket.isGrounded() || rocket.isCrashed())
+                continue;
+
+            int landed = moons.firstCollision(rocket, moonGrid);
+            if (landed >= 0) {
+                rocket.land(moons, landed);
+
+                if (remainingMoons() == 1) {  // early exit (right when they touch last moon they win)
+                    rocket.takeoff();
+                    metrics.collision.record(System.nanoTime() - moved);
+                    return;
+                }
+            }
+
+            if (asteroids.firstCollision(rocket, asteroidGrid) >= 0) { // on collision with an asteroid, it's out
+                Audio.play("Explosion.mp3");
+                rocket.crash();
+                if (allCrashed()) { // lose state
+                    finish(false);
+                    metrics.collision.record(System.nanoTime() - moved);
+                    return;
+                }
+            }
+        }
+
+        // bounce moons on collision with other moons, then asteroids with other asteroids
+        if (physics != null) {
+            collisionPairs = physics.bouncePairs(moons, moonGrid) + physics.bouncePairs(asteroids, asteroidGrid);
+        } else {
+            collisionPairs = moons.bouncePairs(moonGrid) + asteroids.bouncePairs(asteroidGrid);
+        }
+        metrics.collision.record(System.nanoTime() - moved);
+    }
+
+    private boolean allCrashed() {
+        for (int r = 0; r <= racers.length; r++) {
+            if (!getRacer(r).isCrashed())
+                return false;
+        }
+        return true;
+    }
+
+    // moons left to deliver, including those in chunks that aren't loaded
+    int remainingMoons() { return world != null ? world.getRemainingMoons() : moons.size(); }
+
+    // despawn the wave asteroids whose time is up (or that drifted out of the loaded part of the world, so they
+    // aren't saved along with it), then send in a new wave if one is due.
+    // asteroids come from the pool and wave slots are reused, so this doesn't allocate once the pool is warm
+    private void updateWaves() {
+        for (int k = waveCount - 1; k >= 0; k--) {
+            int slot = asteroids.slotOf(waveAsteroids[k]);
+            if (slot >= 0 && waveExpiry[k] > ticks && (world == null || world.isLoaded(asteroids.x[slot], asteroids.y[slot])))
+                continue;
+
+            if (slot >= 0)
+                asteroids.remove(slot);
+
+            waveCount--;
+            waveAsteroids[k] = waveAsteroids[waveCount];
+            waveExpiry[k] = waveExpiry[waveCount];
+        }
+
+        if (ticks % WAVE_TICKS != 0)
+            return;
+
+        BufferedImage texture = Assets.get().asteroid;
+        for (int n = 0; n < WAVE_SIZE; n++) {
+            // somewhere along the left or top edge of the view, the asteroid wraps around from there
+            float along = rng.nextFloat();
+            boolean left = rng.nextBoolean();
+            float x = camera.getX() + (left ? 0 : along*WIDTH);
+            float y = camera.getY() + (left ? along*HEIGHT : 0);
+            Asteroid.spawn(asteroids, rng, texture, x, y);
+
+            if (waveCount == waveAsteroids.length) {
+                waveAsteroids = Arrays.copyOf(waveAsteroids, waveCount*2);
+                waveExpiry = Arrays.copyOf(waveExpiry, waveCount*2);
+            }
+            waveAsteroids[waveCount] = asteroids.handle(asteroids.size() - 1); // spawned into the last slot
+            waveExpiry[waveCount] = ticks + WAVE_LIFETIME;
+            waveCount++;
+        }
+    }
+
+    // apply the key events queued since the last tick, then turn the rocket for any held arrow keys.
+    // a key pressed since the last tick counts as held for this one, so a tap shorter than a tick still turns
+    private void processInput() {
+        int pressedKeys = 0;
+        for (int event = nextEvent(); event != InputQueue.EMPTY; event = nextEvent()) {
+            int key = InputQueue.key(event);
+
+            if (!InputQueue.isPress(event)) {
+                heldKeys &= ~(1 << key);
+                continue;
+            }
+
+            heldKeys |= 1 << key;
+            pressedKeys |= 1 << key;
+            if (key == InputQueue.LAUNCH)
+                player.takeoff();
+            else if (key == InputQueue.DEBUG)
+                player.toggleDebug();
+            else if (key == InputQueue.METRICS)
+                showMetrics = !showMetrics;
+        }
+
+        int down = heldKeys | pressedKeys;
+        if ((down & 1 << InputQueue.LEFT) != 0)
+            player.rotate(-5);
+        if ((down & 1 << InputQueue.RIGHT) != 0)
+            player.rotate(5);
+    }
+
+    // the next event to apply this tick, from the replay or the keyboard
+    private int nextEvent() {
+        int event = replay != null ? replay.poll() : input.poll();
+        if (event != InputQueue.EMPTY && recorder != null)
+            recorder.record(event);
+        return event;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        render((Graphics2D)g, 1.0f);
+    }
+
+    // draw the game, with entity positions interpolated alpha (0 -> 1) of the way from the last tick to the current one
+    // nothing in here allocates, see AllocationCounter (except refreshing the metrics overlay, when it is shown,
+    // adding sprites to the atlas the first time they're drawn with batched sprites, and making the sprite of a moon
+    // that a World streamed in)
+    public synchronized void render(Graphics2D g2, float alpha) {
+        long start = System.nanoTime();
+        if (hud == null)
+            hud = new Hud(WIDTH, HEIGHT);
+
+        g2.drawImage(background, 0, 0, null);
+        hud.renderTitle(g2); // part of the background, as in LayeredRenderer's static layer
+        camera.frame(alpha);
+
+        if (running && sprites != null) { // render all asteroids moons and rockets out of the sprite atlas
+            sprites.render(g2, this, alpha, camera);
+        } else if (running) { // render all asteroids moons and rockets still in the game if the game is active
+            for (int i = 0; i < asteroids.size(); i++) // asteroids rendered behind moons
+                asteroids.get(i).render(g2, alpha, camera);
+
+            for (int i = 0; i < moons.size(); i++)
+                moons.get(i).render(g2, alpha, camera);
+
+            for (int r = 0; r <= racers.length; r++) {
+                if (!getRacer(r).isCrashed())
+                    getRacer(r).render(g2, alpha, camera);
+            }
+        } else { // render win/lose message
+            hud.renderMessage(g2, win);
+        }
+
+        hud.renderStatus(g2, level, player.getScore());
+        if (showMetrics)
+            hud.renderMetrics(g2, metrics);
+
+        metrics.recordFrame(System.nanoTime() - start);
+    }
+
+    // A hash of the whole simulation state, equal for two games that played out identically
+    public synchronized long stateHash() {
+        long h = 1125899906842597L;
+        h = hash(h, level);
+        h = hash(h, ticks);
+        h = hash(h, running ? 1 : win ? 2 : 3);
+        h = player.hash(h);
+        for (Rocket racer : racers)
+            h = racer.hash(h);
+
+        for (int i = 0; i < moons.size(); i++)
+            h = moons.hash(h, i);
+        for (int i = 0; i < asteroids.size(); i++)
+            h = asteroids.hash(h, i);
+        if (world != null)
+            h = world.hash(h);
+
+        return h;
+    }
+
+    static long hash(long h, long value) {
+        h ^= value;
+        h *= 0x100000001b3L;
+        return h ^ (h >>> 29);
+    }
+
+    // usage: Game [--tps=N] [--fps=N] [--no-render] [--full-redraw] [--atlas] [--alloc-stats] [--threads=N] [--seed=N]
+    //             [--trig=table] [--waves] [--world=COLSxROWS] [--jmx] [--metrics-out=FILE.csv|FILE.json] [--metrics-period=SECONDS]
+    //             [--record=FILE | --replay=FILE [--speed=X] [--frame-skip=N]] [--scores=FILE | --no-scores]
+    //        Game --high-scores [--scores=FILE]
+    //        Game --server[=PORT] [--players=N] [--tps=N] [--seed=N] [--trig=table] [--waves]
+    //        Game --connect=HOST[:PORT]
+    //        Game --headless [see HeadlessEngine]
+    public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                HeadlessEngine.main(args);
+                return;
+            }
+        }
+
+        int ticksPerSecond = TICKS_PER_SECOND;
+        int framesPerSecond = 60;
+        boolean allocationStats = false;
+        boolean fullRedraw = false;
+        boolean atlas = false;
+        ParallelPhysics physics = null;
+        long seed = new Random().nextLong();
+        boolean waves = false;
+        boolean trigTable = false;
+        int worldWidth = WIDTH;
+        int worldHeight = HEIGHT;
+        boolean jmx = false;
+        String metricsFile = null;
+        double metricsPeriod = 1;
+        String recordFile = null;
+        String replayFile = null;
+        double speed = 1;
+        int frameSkip = 0;
+        String scoresFile = "scores.log";
+        boolean highScores = false;
+        int serverPort = -1;
+        int players = 2;
+        String connect = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("--tps="))
+                ticksPerSecond = Integer.parseInt(arg.substring("--tps=".length()));
+            else if (arg.startsWith("--fps="))
+                framesPerSecond = Integer.parseInt(arg.substring("--fps=".length()));
+            else if (arg.equals("--no-render"))
+                framesPerSecond = 0;
+            else if (arg.equals("--full-redraw"))
+                fullRedraw = true;
+            else if (arg.equals("--atlas"))
+                atlas = true;
+            else if (arg.equals("--alloc-stats"))
+                allocationStats = true;
+            else if (arg.startsWith("--threads="))
+                physics = new ParallelPhysics(Integer.parseInt(arg.substring("--threads=".length())));
+            else if (arg.startsWith("--seed="))
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            else if (arg.equals("--trig=table"))
+                trigTable = true;
+            else if (arg.equals("--waves"))
+                waves = true;
+            else if (arg.startsWith("--world=")) {
+                String[] screens = arg.substring("--world=".length()).split("x");
+                worldWidth = World.size(Integer.parseInt(screens[0]), WIDTH);
+                worldHeight = World.size(Integer.parseInt(screens[1]), HEIGHT);
+            } else if (arg.equals("--jmx"))
+                jmx = true;
+            else if (arg.startsWith("--metrics-out="))
+                metricsFile = arg.substring("--metrics-out=".length());
+            else if (arg.startsWith("--metrics-period="))
+                metricsPeriod = Double.parseDouble(arg.substring("--metrics-period=".length()));
+            else if (arg.startsWith("--record="))
+                recordFile = arg.substring("--record=".length());
+            else if (arg.startsWith("--replay="))
+                replayFile = arg.substring("--replay=".length());
+            else if (arg.startsWith("--speed="))
+                speed = Double.parseDouble(arg.substring("--speed=".length()));
+            else if (arg.startsWith("--frame-skip="))
+                frameSkip = Integer.parseInt(arg.substring("--frame-skip=".length()));
+            else if (arg.startsWith("--scores="))
+                scoresFile = arg.substring("--scores=".length());
+            else if (arg.equals("--no-scores"))
+                scoresFile = null;
+            else if (arg.equals("--high-scores"))
+                highScores = true;
+            else if (arg.equals("--server"))
+                serverPort = RACE_PORT;
+            else if (arg.startsWith("--server="))
+                serverPort = Integer.parseInt(arg.substring("--server=".length()));
+            else if (arg.startsWith("--players="))
+                players = Integer.parseInt(arg.substring("--players=".length()));
+            else if (arg.startsWith("--connect="))
+                connect = arg.substring("--connect=".length());
+        }
+
+        if (highScores) {
+            printHighScores(scoresFile);
+            return;
+        }
+        if (serverPort >= 0) {
+            serveRace(serverPort, players, seed, ticksPerSecond, waves, trigTable);
+            return;
+        }
+        if (connect != null) {
+            joinRace(connect);
+            return;
+        }
+
+        // a replay brings its own seed and tick rate, and is played back at speed times that rate,
+        // drawing one frame in every frameSkip + 1
+        Replay.Reader replay = null;
+        if (replayFile != null) {
+            replay = openReplay(replayFile);
+            seed = replay.getSeed();
+            trigTable = replay.isTrigTable();
+            waves = replay.isHazardWaves();
+            worldWidth = replay.getWorldWidth();
+            worldHeight = replay.getWorldHeight();
+            ticksPerSecond = replay.getTicksPerSecond();
+            framesPerSecond /= frameSkip + 1;
+        }
+
+        Audio.loop("Music.mp3");
+        Assets.get(); // load everything up front, not when the first level starts
+
+        // one window, game and loop for the whole session, each level just resets the game
+        Game game = new Game(1, 0, new Random(seed), physics, worldWidth, worldHeight);
+        game.setHazardWaves(waves);
+        game.setTrigTable(trigTable);
+        game.setTicksPerSecond(ticksPerSecond);
+        game.setBatchedSprites(atlas);
+        if (replay != null)
+            game.play(replay);
+        if (recordFile != null) {
+            try {
+                game.record(new Replay.Recorder(Paths.get(recordFile), seed, game));
+                Runtime.getRuntime().addShutdownHook(new Thread(game::stopRecording));
+            } catch (IOException e) {
+                System.err.println("*** could not record to " + recordFile + ": " + e.getMessage() + " ***");
+            }
+        }
+        if (scoresFile != null && replay == null) { // a replayed run was already recorded when it was played
+            ScoreLog scores = openScores(scoresFile);
+            if (scores != null) {
+                game.setScoreLog(scores);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    game.endRun();
+                    scores.close();
+                }));
+            }
+        }
+        game.metrics.watchGarbageCollection();
+        if (jmx)
+            game.metrics.registerMBean();
+        if (metricsFile != null)
+            game.metrics.startDumping(metricsFile, (long)(metricsPeriod*1000));
+        game.openWindow();
+        GameLoop loop = new GameLoop(game, (int)Math.max(1, ticksPerSecond*speed), framesPerSecond);
+        loop.setCountAllocations(allocationStats);
+        loop.setFullRedraw(fullRedraw);
+        loop.start();
+
+        try {
+            while (true) {
+                game.awaitFinished();
+                game.prepareNextLevel();
+                if (replay == null)
+                    game.awaitContinue(); // keeps rendering the win/lose screen until enter is pressed
+                else
+                    Thread.sleep((long)(1000/speed)); // show the win/lose screen for a moment
+
+                game.nextLevel();
+            }
+        } catch (InterruptedException e) {
+        }
+    }
+
+    // run a race for players (see RaceServer) until the process is killed, the server has no window of its own
+    private static void serveRace(int port, int players, long seed, int ticksPerSecond, boolean waves, boolean trigTable) {
+        System.setProperty("java.awt.headless", "true");
+        Audio.disable();
+        try {
+            RaceServer server = new RaceServer("0.0.0.0", port, players, seed, ticksPerSecond);
+            server.getGame().setHazardWaves(waves);
+            server.getGame().setTrigTable(trigTable);
+            server.start();
+            System.out.printf("race server on port %d, the race starts when %d players have joined%n",
+                    server.getPort(), players);
+        } catch (IOException e) {
+            System.err.println("*** could not start a race server on port " + port + ": " + e.getMessage() + " ***");
+            System.exit(1);
+        }
+    }
+
+    // join a race at host[:port] in a window of its own
+    private static void joinRace(String address) {
+        int colon = address.lastIndexOf(':');
+        String host = colon >= 0 ? address.substring(0, colon) : address;
+        int port = colon >= 0 ? Integer.parseInt(address.substring(colon + 1)) : RACE_PORT;
+
+        Audio.loop("Music.mp3");
+        try {
+            RaceClient client = RaceClient.connect(host, port);
+            client.openWindow();
+            client.start();
+        } catch (IOException e) {
+            System.err.println("*** could not join the race at " + address + ": " + e.getMessage() + " ***");
+            System.exit(1);
+        }
+    }
+
+    static ScoreLog openScores(String file) {
+        try {
+            return ScoreLog.open(Paths.get(file), HIGH_SCORES);
+        } catch (IOException e) {
+            System.err.println("*** could not open scores " + file + ": " + e.getMessage() + " ***");
+            return null;
+        }
+    }
+
+    private static void printHighScores(String file) {
+        ScoreLog scores = file != null ? openScores(file) : null;
+        if (scores == null)
+            return;
+
+        System.out.printf("%d runs, best level %d, mean score %.0f, %.2f s between landings%n", scores.getRuns(),
+                scores.getBestLevel(), scores.getMeanScore(), scores.getMeanLandingSeconds());
+        int rank = 1;
+        for (ScoreLog.Run run : scores.top(10))
+            System.out.printf("%2d. %10d  level %d  %s%n", rank++, run.score, run.level, new Date(run.time));
+        scores.close();
+    }
+
+    static Replay.Reader openReplay(String file) {
+        try {
+            return Replay.Reader.open(Paths.get(file));
+        } catch (IOException e) {
+            System.err.println("*** could not read replay " + file + ": " + e.getMessage() + " ***");
+            System.exit(1);
+            return null;
+        }
+    }
+}
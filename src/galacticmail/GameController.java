@@ -0,0 +1,49 @@
+package galacticmail;
+
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+
+/**
+ * Handles user input.
+ * Key presses and releases are queued for the simulation thread instead of changing the game directly.
+ */
+public class GameController implements KeyListener {
+    private Game state;
+
+    public GameController(Game state) {
+        this.state = state;
+    }
+
+    @Override
+    public void keyPressed(KeyEvent e) {
+        int key = key(e);
+        if (key >= 0)
+            state.getInput().offer(InputQueue.pressed(key));
+        else if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
+            System.exit(0);
+        else if (e.getKeyCode() == KeyEvent.VK_ENTER)
+            state.requestContinue();
+    }
+
+    @Override
+    public void keyTyped(KeyEvent e) { }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int key = key(e);
+        if (key >= 0)
+            state.getInput().offer(InputQueue.released(key));
+    }
+
+    // the InputQueue key for a key event, or -1 if it isn't one
+    static int key(KeyEvent e) {
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_LEFT: return InputQueue.LEFT;
+            case KeyEvent.VK_RIGHT: return InputQueue.RIGHT;
+            case KeyEvent.VK_SPACE: return InputQueue.LAUNCH;
+            case KeyEvent.VK_P: return InputQueue.DEBUG; // for testing, allows full rotation of the rocket
+            case KeyEvent.VK_F3: return InputQueue.METRICS; // timings and entity counts, see Metrics
+            default: return -1;
+        }
+    }
+}
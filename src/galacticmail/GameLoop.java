@@ -0,0 +1,182 @@
+package galacticmail;
+
+import java.awt.Graphics2D;
+import java.awt.Toolkit;
+import java.awt.image.BufferStrategy;
+import javax.swing.JFrame;
+
+/**
+ * Fixed-timestep engine for a Game.
+ * The simulation ticks at a fixed rate on its own thread using an accumulator, so game speed no longer
+ * depends on how long rendering takes. Rendering runs on a second thread that actively draws frames,
+ * interpolating entity positions between the last two ticks. By default only the parts of the screen that changed
+ * are repainted (see LayeredRenderer), setFullRedraw draws every frame in full into a BufferStrategy instead.
+ * A frame rate of 0 runs the simulation without rendering at all.
+ * One loop runs for the whole session, levels are switched by resetting the game.
+ */
+public class GameLoop {
+    private static final int MAX_TICKS_PER_FRAME = 5; // drop time instead of spiralling when we fall far behind
+
+    private final Game game;
+    private final long tickNanos;
+    private final long frameNanos;
+
+    private final AllocationCounter renderAllocations = new AllocationCounter(); // bytes allocated by Game.render per frame
+    private boolean countAllocations = false;
+    private boolean fullRedraw = false;
+
+    private volatile boolean active = false;
+    private volatile boolean rendering = false;
+    private volatile long lastTickTime; // when the simulation last advanced, used to compute alpha
+    private Thread simThread;
+    private Thread renderThread;
+
+    public GameLoop(Game game, int ticksPerSecond, int framesPerSecond) {
+        this.game = game;
+        this.tickNanos = 1000000000L / ticksPerSecond;
+        this.frameNanos = framesPerSecond > 0 ? 1000000000L / framesPerSecond : 0;
+    }
+
+    public boolean isRendering() { return frameNanos > 0; }
+
+    // measure what each frame allocates and record it in the game's Metrics
+    public void setCountAllocations(boolean count) { countAllocations = count; }
+
+    // redraw the whole screen every frame instead of just what changed
+    public void setFullRedraw(boolean fullRedraw) { this.fullRedraw = fullRedraw; }
+
+    public void start() {
+        lastTickTime = System.nanoTime();
+        active = true;
+        game.setDrawn(isRendering());
+
+        simThread = new Thread(this::simulate, "simulation");
+        simThread.start();
+
+        if (isRendering()) {
+            rendering = true;
+            renderThread = new Thread(this::render, "render");
+            renderThread.start();
+        }
+    }
+
+    // stop simulating and drawing frames
+    public void stop() throws InterruptedException {
+        active = false;
+        rendering = false;
+        simThread.interrupt();
+        simThread.join();
+        if (renderThread != null)
+            renderThread.join();
+    }
+
+    // the simulation thread keeps going across levels: it waits while the win/lose screen is up,
+    // and picks up again when the game is reset
+    private void simulate() {
+        try {
+            while (active) {
+                game.awaitRunning();
+                simulateLevel();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void simulateLevel() {
+        long previous = System.nanoTime();
+        long accumulator = 0;
+
+        while (game.isRunning() && active) {
+            long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+
+            if (accumulator > MAX_TICKS_PER_FRAME*tickNanos)
+                accumulator = MAX_TICKS_PER_FRAME*tickNanos;
+
+            while (accumulator >= tickNanos && game.isRunning()) {
+                game.update();
+                accumulator -= tickNanos;
+                lastTickTime = System.nanoTime();
+            }
+
+            sleepNanos(tickNanos - accumulator);
+        }
+    }
+
+    private void render() {
+        JFrame frame = game.getFrame();
+        frame.setIgnoreRepaint(true);
+        game.setIgnoreRepaint(true);
+        BufferStrategy strategy = null;
+        LayeredRenderer layered = null;
+        if (fullRedraw) {
+            frame.createBufferStrategy(2);
+            strategy = frame.getBufferStrategy();
+        } else {
+            layered = new LayeredRenderer(game, game.getGraphicsConfiguration());
+        }
+
+        while (rendering) {
+            long start = System.nanoTime();
+            float alpha = Math.min(1.0f, (start - lastTickTime)/(float)tickNanos);
+
+            if (strategy != null)
+                renderFull(strategy, alpha);
+            else
+                renderLayered(layered, alpha);
+
+            Toolkit.getDefaultToolkit().sync();
+
+            sleepNanos(frameNanos - (System.nanoTime() - start));
+        }
+    }
+
+    private void renderFull(BufferStrategy strategy, float alpha) {
+        do {
+            do {
+                Graphics2D g = (Graphics2D)strategy.getDrawGraphics();
+                try {
+                    if (countAllocations)
+                        renderAllocations.start();
+                    game.render(g, alpha);
+                    if (countAllocations)
+                        game.getMetrics().recordRenderAllocation(renderAllocations.stop());
+                } finally {
+                    g.dispose();
+                }
+            } while (strategy.contentsRestored());
+
+            strategy.show();
+        } while (strategy.contentsLost());
+    }
+
+    // draw straight onto the panel, the renderer keeps its own copy of the frame
+    private void renderLayered(LayeredRenderer layered, float alpha) {
+        Graphics2D g = (Graphics2D)game.getGraphics();
+        if (g == null)
+            return; // not on screen yet
+
+        try {
+            if (countAllocations)
+                renderAllocations.start();
+            layered.render(g, alpha);
+            if (countAllocations)
+                game.getMetrics().recordRenderAllocation(renderAllocations.stop());
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static void sleepNanos(long nanos) {
+        if (nanos <= 0)
+            return;
+
+        try {
+            Thread.sleep(nanos / 1000000, (int)(nanos % 1000000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,393 @@
+package galacticmail;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Runs the game without any window, sound or frame pacing, as fast as update() can go.
+ * The rocket is flown by a Bot, by default the Autopilot, which heads for the nearest moon so levels actually finish.
+ * Everything is driven by one seeded Random, so the same seed always produces the same state hashes.
+ * Used for balancing and regression runs:
+ *
+ *   java Game --headless [--seed=N] [--levels=N] [--max-ticks=N] [--threads=N] [--trig=table] [--waves]
+ *                         [--world=COLSxROWS] [--trig-check]
+ *   java Game --headless --batch=GAMES [--threads=N] [--bot=CLASS] [--seed=N] [--levels=N] [--max-ticks=N]
+ *                         [--trig=table] [--waves] [--world=COLSxROWS]
+ *   java Game --headless --replay=FILE [--threads=N]
+ *   java Game --headless --race=RACERS [--seconds=N] [--tps=N] [--bot=CLASS] [--seed=N] [--trig=table] [--waves]
+ *
+ * --trig-check plays every level twice in lockstep, with exact trig and with the Trig table, and reports how far
+ * the table's trajectories drift from the exact ones.
+ * --replay plays back a session recorded with Game --record as fast as possible instead of using the autopilot,
+ * for reproducing performance problems on exactly the same workload.
+ * --batch plays GAMES independent runs on a pool of --threads threads instead (see BatchRunner), with --levels as the
+ * most levels in a run, flown by the named Bot class (which needs a no-argument constructor) or the Autopilot.
+ * --race runs a RaceServer on the loopback interface for --seconds, with a RaceClient flown by a bot for each racer,
+ * and reports the bandwidth and time spent on STATE messages, and how closely the clients followed the server.
+ */
+public class HeadlessEngine {
+    private final Random rng;
+    private final ParallelPhysics physics;
+    private final int maxTicks; // a level that runs longer than this counts as a timeout
+    private boolean hazardWaves = false;
+    private boolean trigTable = false;
+    private Bot bot = new Autopilot();
+    private int worldWidth = Game.WIDTH;
+    private int worldHeight = Game.HEIGHT;
+    private Game game; // reused for every level
+
+    private int levelsPlayed = 0;
+    private int wins = 0;
+    private int losses = 0;
+    private int timeouts = 0;
+    private long totalTicks = 0;
+    private long hash = 0; // combined state hash of every level played
+
+    public HeadlessEngine(long seed, int maxTicks, ParallelPhysics physics) {
+        this.rng = new Random(seed);
+        this.maxTicks = maxTicks;
+        this.physics = physics;
+    }
+
+    // play with hazard waves (see Game.setHazardWaves)
+    public void setHazardWaves(boolean hazardWaves) { this.hazardWaves = hazardWaves; }
+
+    // compute the rocket's heading with the Trig table (see Game.setTrigTable)
+    public void setTrigTable(boolean trigTable) { this.trigTable = trigTable; }
+
+    // fly the rocket with bot instead of the Autopilot
+    public void setBot(Bot bot) { this.bot = bot; }
+
+    // play in a world of this size (see World)
+    public void setWorldSize(int width, int height) { worldWidth = width; worldHeight = height; }
+
+    // play a level to the end, returns the finished game
+    public Game playLevel(int level, int score) {
+        if (game == null) {
+            game = new Game(level, score, rng, physics, worldWidth, worldHeight);
+            game.setHazardWaves(hazardWaves);
+            game.setTrigTable(trigTable);
+            game.setBot(bot);
+        } else {
+            game.reset(level, score);
+        }
+
+        int ticks = 0;
+
+        while (game.isRunning() && ticks < maxTicks) {
+            game.update();
+            ticks++;
+        }
+
+        levelsPlayed++;
+        totalTicks += ticks;
+        hash = Game.hash(hash, game.stateHash());
+
+        if (game.isRunning())
+            timeouts++;
+        else if (game.isWin())
+            wins++;
+        else
+            losses++;
+
+        return game;
+    }
+
+    // play levels the way Game.main does: a win moves on to the next level, anything else starts over
+    public void play(int levels) {
+        int level = 1;
+        int score = 0;
+
+        for (int i = 0; i < levels; i++) {
+            Game game = playLevel(level, score);
+
+            if (!game.isRunning() && game.isWin()) {
+                level += 1;
+                score += game.getPlayer().getScore();
+            } else {
+                level = 1;
+                score = 0;
+            }
+        }
+    }
+
+    // play one run the way Game.main does: from level 1, moving on after each win, until a level is lost or times out
+    // or maxLevels have been won. returns the score at the end of the run
+    public long playRun(int maxLevels) {
+        int score = 0;
+        Game game = null;
+        for (int level = 1; level <= maxLevels; level++) {
+            game = playLevel(level, score);
+            if (game.isRunning() || !game.isWin())
+                break;
+            score += game.getPlayer().getScore();
+        }
+        return game != null ? game.getPlayer().getScore() : 0;
+    }
+
+    public int getLevelsPlayed() { return levelsPlayed; }
+    public int getWins() { return wins; }
+    public int getLosses() { return losses; }
+    public int getTimeouts() { return timeouts; }
+    public long getTotalTicks() { return totalTicks; }
+    public long getHash() { return hash; }
+
+    // play levels with exact trig and with the Trig table side by side, comparing the rocket's trajectories
+    public static void checkTrig(long seed, int levels, int maxTicks) {
+        Random exactRng = new Random(seed);
+        Random tableRng = new Random(seed); // same levels for both, reset() draws the same numbers for the same level
+        Game exact = null;
+        Game table = null;
+        int level = 1;
+        int score = 0;
+        int sameOutcome = 0;
+        long ticks = 0;
+        long driftTicks = 0; // ticks where the two rockets were in different places
+        double maxDrift = 0;
+
+        for (int i = 0; i < levels; i++) {
+            if (exact == null) {
+                exact = new Game(level, score, exactRng, null);
+                table = new Game(level, score, tableRng, null);
+                exact.setBot(new Autopilot());
+                table.setBot(new Autopilot());
+                table.setTrigTable(true);
+            } else {
+                exact.reset(level, score);
+                table.reset(level, score);
+            }
+
+            for (int t = 0; t < maxTicks && (exact.isRunning() || table.isRunning()); t++) {
+                if (exact.isRunning())
+                    exact.update();
+                if (table.isRunning())
+                    table.update();
+
+                if (exact.isRunning() && table.isRunning()) {
+                    float dx = Math.abs(exact.getPlayer().getX() - table.getPlayer().getX());
+                    float dy = Math.abs(exact.getPlayer().getY() - table.getPlayer().getY());
+                    double drift = Math.hypot(Math.min(dx, Game.WIDTH - dx), Math.min(dy, Game.HEIGHT - dy));
+                    maxDrift = Math.max(maxDrift, drift);
+                    if (drift > 0)
+                        driftTicks++;
+                    ticks++;
+                }
+            }
+
+            if (exact.isRunning() == table.isRunning() && exact.isWin() == table.isWin()
+                    && exact.getTicks() == table.getTicks())
+                sameOutcome++;
+
+            // follow the exact game, so both keep playing the same levels
+            if (!exact.isRunning() && exact.isWin()) {
+                level += 1;
+                score += exact.getPlayer().getScore();
+            } else {
+                level = 1;
+                score = 0;
+            }
+        }
+
+        System.out.printf("trig table: max sin/cos error %.2e%n", Trig.maxTableError());
+        System.out.printf("seed %d: %d/%d levels ended the same way on the same tick%n", seed, sameOutcome, levels);
+        System.out.printf("rocket positions differed on %d of %d ticks, by at most %.1f pixels%n", driftTicks, ticks, maxDrift);
+    }
+
+    // play a recorded session to the end as fast as possible, printing how long it took and the final state hash
+    public static void replay(Replay.Reader replay, ParallelPhysics physics) {
+        Game game = new Game(1, 0, new Random(replay.getSeed()), physics, replay.getWorldWidth(), replay.getWorldHeight());
+        game.setHazardWaves(replay.isHazardWaves());
+        game.setTrigTable(replay.isTrigTable());
+        game.setTicksPerSecond(replay.getTicksPerSecond());
+        game.play(replay);
+        int levels = 1;
+
+        long start = System.nanoTime();
+        while (!replay.isFinished()) {
+            if (!game.isRunning()) {
+                game.nextLevel();
+                levels++;
+            }
+            game.update();
+        }
+        double secs = (System.nanoTime() - start)/1e9;
+        double recorded = replay.getTicks()/(double)replay.getTicksPerSecond();
+
+        System.out.printf("replay of seed %d: %d ticks (%.0fs of play) over %d levels in %.2fs, %.0fx realtime%n",
+                replay.getSeed(), replay.getTicks(), recorded, levels, secs, recorded/secs);
+        System.out.printf("state hash %016x%n", game.stateHash());
+        for (String line : game.getMetrics().summary())
+            System.out.println(line);
+    }
+
+    // a new bot of the named class for each game, or the Autopilot if there's no name
+    static Supplier<Bot> bots(String className) {
+        if (className == null)
+            return Autopilot::new;
+
+        try {
+            Constructor<? extends Bot> constructor = Class.forName(className).asSubclass(Bot.class).getConstructor();
+            return () -> {
+                try {
+                    return constructor.newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("could not create bot " + className, e);
+                }
+            };
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            System.err.println("*** no bot class " + className + ": " + e + " ***");
+            System.exit(1);
+            return null;
+        }
+    }
+
+    // run a race over loopback with a bot for every racer, for seconds, and print how the protocol did
+    private static void race(long seed, int racers, int seconds, int ticksPerSecond, boolean waves, boolean trigTable,
+                             Supplier<Bot> bots) {
+        try {
+            RaceServer server = new RaceServer("127.0.0.1", 0, racers, seed, ticksPerSecond);
+            server.getGame().setHazardWaves(waves);
+            server.getGame().setTrigTable(trigTable);
+            server.start();
+
+            RaceClient[] clients = new RaceClient[racers];
+            for (int r = 0; r < racers; r++) {
+                clients[r] = RaceClient.connect("127.0.0.1", server.getPort());
+                clients[r].setBot(bots.get());
+                clients[r].start();
+            }
+
+            Thread.sleep(seconds*1000L);
+            server.stop();
+            for (RaceClient client : clients)
+                client.awaitClosed();
+
+            long ticks = server.getTick();
+            Game game = server.getGame();
+            System.out.printf("seed %d: %d racers, %d ticks at %d ticks/sec, level %d, %d moons and %d asteroids at the end%n",
+                    seed, racers, ticks, ticksPerSecond, game.getLevel(), game.getMoons().size(), game.getAsteroids().size());
+            System.out.printf("STATE %.1f bytes/tick (%.1f KB/sec per client), built in %.2f us/tick%n",
+                    server.getBytesWritten()/(double)ticks, server.getBytesWritten()/(double)ticks*ticksPerSecond/1024,
+                    server.getWriteNanos()/1e3/ticks);
+            for (RaceClient client : clients) {
+                float error = client.getTick() == ticks ? client.mirrorError(game) : -1;
+                System.out.printf("racer %d: score %d, %d states, %d bytes, rocket corrected by up to %.2f px, %s%n",
+                        client.getRacer(), client.getScore(), client.getStates(), client.getBytesRead(),
+                        client.getMaxCorrection(), error >= 0 ? String.format("entities within %.3f px", error)
+                                : "entities out of sync at tick " + client.getTick());
+            }
+        } catch (IOException e) {
+            System.err.println("*** race failed: " + e.getMessage() + " ***");
+            System.exit(1);
+        } catch (InterruptedException e) {
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Audio.disable();
+
+        long seed = 1;
+        int levels = 1000;
+        int maxTicks = 60*Game.TICKS_PER_SECOND;
+        boolean trigCheck = false;
+        boolean waves = false;
+        boolean trigTable = false;
+        int worldWidth = Game.WIDTH;
+        int worldHeight = Game.HEIGHT;
+        String replayFile = null;
+        int batch = 0;
+        int threads = 0; // each game's physics, or whole games with --batch
+        String botClass = null;
+        int race = 0;
+        int seconds = 20;
+        int ticksPerSecond = Game.TICKS_PER_SECOND;
+
+        for (String arg : args) {
+            if (arg.startsWith("--seed="))
+                seed = Long.parseLong(arg.substring("--seed=".length()));
+            else if (arg.startsWith("--levels="))
+                levels = Integer.parseInt(arg.substring("--levels=".length()));
+            else if (arg.startsWith("--max-ticks="))
+                maxTicks = Integer.parseInt(arg.substring("--max-ticks=".length()));
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.equals("--trig=table"))
+                trigTable = true;
+            else if (arg.equals("--waves"))
+                waves = true;
+            else if (arg.startsWith("--world=")) {
+                String[] screens = arg.substring("--world=".length()).split("x");
+                worldWidth = World.size(Integer.parseInt(screens[0]), Game.WIDTH);
+                worldHeight = World.size(Integer.parseInt(screens[1]), Game.HEIGHT);
+            } else if (arg.equals("--trig-check"))
+                trigCheck = true;
+            else if (arg.startsWith("--replay="))
+                replayFile = arg.substring("--replay=".length());
+            else if (arg.startsWith("--batch="))
+                batch = Integer.parseInt(arg.substring("--batch=".length()));
+            else if (arg.startsWith("--bot="))
+                botClass = arg.substring("--bot=".length());
+            else if (arg.startsWith("--race="))
+                race = Integer.parseInt(arg.substring("--race=".length()));
+            else if (arg.startsWith("--seconds="))
+                seconds = Integer.parseInt(arg.substring("--seconds=".length()));
+            else if (arg.startsWith("--tps="))
+                ticksPerSecond = Integer.parseInt(arg.substring("--tps=".length()));
+        }
+
+        if (race > 0) {
+            race(seed, race, seconds, ticksPerSecond, waves, trigTable, bots(botClass));
+            return;
+        }
+
+        if (batch > 0) {
+            BatchRunner runner = new BatchRunner(seed, batch, levels, maxTicks, bots(botClass));
+            runner.setHazardWaves(waves);
+            runner.setTrigTable(trigTable);
+            runner.setWorldSize(worldWidth, worldHeight);
+            runner.run(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            for (String line : runner.summary())
+                System.out.println(line);
+            return;
+        }
+
+        ParallelPhysics physics = threads > 0 ? new ParallelPhysics(threads) : null;
+
+        if (replayFile != null) {
+            Replay.Reader replay = Game.openReplay(replayFile);
+            replay(replay, physics);
+            if (physics != null)
+                physics.shutdown();
+            return;
+        }
+
+        if (trigCheck) {
+            checkTrig(seed, levels, maxTicks);
+            return;
+        }
+
+        HeadlessEngine engine = new HeadlessEngine(seed, maxTicks, physics);
+        engine.setHazardWaves(waves);
+        engine.setTrigTable(trigTable);
+        engine.setWorldSize(worldWidth, worldHeight);
+        long start = System.nanoTime();
+        engine.play(levels);
+        double secs = (System.nanoTime() - start)/1e9;
+
+        System.out.printf("seed %d: %d levels (%d won, %d lost, %d timed out), %d ticks in %.2fs%n",
+                seed, engine.getLevelsPlayed(), engine.getWins(), engine.getLosses(), engine.getTimeouts(),
+                engine.getTotalTicks(), secs);
+        System.out.printf("%.0f ticks/sec, %.0f levels/sec, state hash %016x%n",
+                engine.getTotalTicks()/secs, engine.getLevelsPlayed()/secs, engine.getHash());
+        if (engine.game != null) {
+            for (String line : engine.game.getMetrics().summary())
+                System.out.println(line);
+        }
+
+        if (physics != null)
+            physics.shutdown();
+    }
+}
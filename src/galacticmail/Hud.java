@@ -0,0 +1,161 @@
+package galacticmail;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * The heads up display: title, level and score, plus the win/lose message and the metrics overlay.
+ * Text is pre-rendered into images and only redrawn when the level, score or message changes,
+ * so drawing the HUD each frame doesn't allocate anything. The title never changes and is kept apart from the
+ * level and score, so that LayeredRenderer can draw it into its static layer once.
+ */
+public class Hud {
+    private static final Font TITLE_FONT = new Font("TimesRoman", Font.BOLD, 100);
+    private static final Font SUBTITLE_FONT = new Font("TimesRoman", Font.BOLD, 50);
+    private static final Font HUD_FONT = new Font("TimesRoman", Font.BOLD, 20);
+    private static final Font METRICS_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+    private static final long METRICS_REFRESH_NANOS = 500000000L;
+    private static final Color OVERLAY = new Color(0, 0, 0, 127);
+    private static final Color CLEAR = new Color(0, 0, 0, 0);
+    private static final String TITLE = "Welcome to Galactic Mail";
+
+    private final int width;
+    private final int height;
+
+    private final BufferedImage title; // title along the top of the screen
+    private BufferedImage status;  // level and score, in the top right corner
+    private BufferedImage message; // win/lose message over a darkened screen
+    private BufferedImage metrics; // Metrics summary, created the first time it is shown
+    private FontMetrics hudMetrics;
+    private FontMetrics titleMetrics;
+    private FontMetrics subtitleMetrics;
+    private FontMetrics metricsMetrics;
+
+    private int shownLevel = -1;
+    private long shownScore = -1;
+    private int shownMessage = -1; // 0 = lose, 1 = win
+    private long metricsShownAt;
+
+    public Hud(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.message = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = message.createGraphics();
+        hudMetrics = g.getFontMetrics(HUD_FONT);
+        titleMetrics = g.getFontMetrics(TITLE_FONT);
+        subtitleMetrics = g.getFontMetrics(SUBTITLE_FONT);
+        metricsMetrics = g.getFontMetrics(METRICS_FONT);
+        g.dispose();
+
+        this.status = new BufferedImage(width/4, 2*hudMetrics.getHeight() + 20, BufferedImage.TYPE_INT_ARGB);
+        this.title = new BufferedImage(width, hudMetrics.getHeight() + 20, BufferedImage.TYPE_INT_ARGB);
+        g = begin(title);
+        g.setFont(HUD_FONT);
+        g.drawString(TITLE, width/2 - hudMetrics.stringWidth(TITLE)/2, hudMetrics.getHeight() + 10);
+        g.dispose();
+    }
+
+    // the area renderStatus() draws to
+    public int getStatusX() { return width - status.getWidth(); }
+    public int getStatusWidth() { return status.getWidth(); }
+    public int getStatusHeight() { return status.getHeight(); }
+
+    // the area renderMetrics() draws to
+    public int getMetricsWidth() { return width/2; }
+    public int getMetricsHeight() { return (Metrics.SUMMARY_LINES + 1)*metricsMetrics.getHeight(); }
+
+    // true if renderStatus would draw the same thing as last time
+    public boolean isStatusShown(int level, long score) { return level == shownLevel && score == shownScore; }
+
+    // draw the win/lose overlay
+    public void renderMessage(Graphics2D g, boolean win) {
+        int key = win ? 1 : 0;
+        if (key != shownMessage) {
+            redrawMessage(win);
+            shownMessage = key;
+        }
+
+        g.drawImage(message, 0, 0, null);
+    }
+
+    public void renderTitle(Graphics2D g) { g.drawImage(title, 0, 0, null); }
+
+    // draw the level and score
+    public void renderStatus(Graphics2D g, int level, long score) {
+        if (level != shownLevel || score != shownScore) {
+            redrawStatus(level, score);
+            shownLevel = level;
+            shownScore = score;
+        }
+
+        g.drawImage(status, getStatusX(), 0, null);
+    }
+
+    // draw the metrics overlay in the top left corner, refreshed twice a second
+    public void renderMetrics(Graphics2D g, Metrics m) {
+        long now = System.nanoTime();
+        if (metrics == null || now - metricsShownAt >= METRICS_REFRESH_NANOS) {
+            redrawMetrics(m);
+            metricsShownAt = now;
+        }
+
+        g.drawImage(metrics, 0, 0, null);
+    }
+
+    private void redrawMessage(boolean win) {
+        String message = win ? "You win!" : "You lose.";
+        String message2 = "Press Enter to " + (win ? "continue to the next level." : "restart.");
+
+        Graphics2D g = begin(this.message);
+        g.setColor(OVERLAY);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.WHITE);
+        g.setFont(TITLE_FONT);
+        g.drawString(message, width/2 - titleMetrics.stringWidth(message)/2, height/2);
+        g.setFont(SUBTITLE_FONT);
+        g.drawString(message2, width/2 - subtitleMetrics.stringWidth(message2)/2, height/2 + subtitleMetrics.getHeight() + 5);
+        g.dispose();
+    }
+
+    private void redrawStatus(int level, long score) {
+        String levelText = "Level: " + level;
+        String scoreText = "Score: " + score;
+        int lineHeight = hudMetrics.getHeight();
+
+        Graphics2D g = begin(status);
+        g.setFont(HUD_FONT);
+        g.drawString(levelText, status.getWidth() - hudMetrics.stringWidth(levelText) - 10, lineHeight + 10);
+        g.drawString(scoreText, status.getWidth() - hudMetrics.stringWidth(scoreText) - 10, 2*lineHeight + 10);
+        g.dispose();
+    }
+
+    private void redrawMetrics(Metrics m) {
+        String[] lines = m.summary();
+        int lineHeight = metricsMetrics.getHeight();
+
+        if (metrics == null)
+            metrics = new BufferedImage(getMetricsWidth(), getMetricsHeight(), BufferedImage.TYPE_INT_ARGB);
+
+        Graphics2D g = begin(metrics);
+        g.setColor(OVERLAY);
+        g.fillRect(0, 0, metrics.getWidth(), metrics.getHeight());
+        g.setColor(Color.WHITE);
+        g.setFont(METRICS_FONT);
+        for (int i = 0; i < lines.length; i++)
+            g.drawString(lines[i], 10, (i + 1)*lineHeight);
+        g.dispose();
+    }
+
+    // clear an image and get ready to draw white text on it
+    private static Graphics2D begin(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setBackground(CLEAR);
+        g.clearRect(0, 0, image.getWidth(), image.getHeight());
+        g.setColor(Color.WHITE);
+        return g;
+    }
+}
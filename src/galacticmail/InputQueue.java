@@ -0,0 +1,69 @@
+package galacticmail;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free single-producer queue of key events.
+ * The AWT event thread (GameController) is the only producer. The simulation thread drains the queue once per tick
+ * in Game.update, and Game.reset clears it from whichever thread starts the next level. Consumers move the head
+ * with compareAndSet, so poll() and clear() are safe from any number of threads at once.
+ * Events are ints: the key in the upper bits and whether it was pressed in the lowest bit.
+ */
+public class InputQueue {
+    // keys the game cares about, also the bit numbers in the held-keys bitmap
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int LAUNCH = 2;
+    public static final int DEBUG = 3;
+    public static final int METRICS = 4;
+
+    public static final int EMPTY = -1; // returned by poll() when there are no events
+
+    private final int[] events;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // next event to read, only moved forward by consumers
+    private final AtomicLong tail = new AtomicLong(); // next event to write, only written by the producer
+
+    // capacity is rounded up to a power of two
+    public InputQueue(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.events = new int[size];
+        this.mask = size - 1;
+    }
+
+    public static int pressed(int key) { return key << 1 | 1; }
+    public static int released(int key) { return key << 1; }
+    public static int key(int event) { return event >>> 1; }
+    public static boolean isPress(int event) { return (event & 1) != 0; }
+
+    // returns false (dropping the event) if the queue is full
+    public boolean offer(int event) {
+        long t = tail.get();
+        if (t - head.get() == events.length)
+            return false;
+
+        events[(int)t & mask] = event;
+        tail.lazySet(t + 1); // publishes the event to the consumer
+        return true;
+    }
+
+    // drop every event queued so far
+    public void clear() {
+        long t = tail.get();
+        long h = head.get();
+        while (h < t && !head.compareAndSet(h, t)) // a poll got there first, never move the head back
+            h = head.get();
+    }
+
+    public int poll() {
+        while (true) {
+            long h = head.get();
+            if (h == tail.get())
+                return EMPTY;
+
+            int event = events[(int)h & mask]; // the producer can't reuse the slot until the head moves past it
+            if (head.compareAndSet(h, h + 1)) // frees the slot for the producer
+                return event;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package galacticmail;
+
+/**
+ * A fixed-size log-linear histogram of nanosecond latencies, in the style of HdrHistogram.
+ * Values are exact below 128ns, above that each power of two is split into 64 buckets (under 2% error).
+ * Recording never allocates. Methods are synchronized since the game records on its own threads
+ * while metrics are read from the overlay, JMX and the dump thread.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS; // buckets per power of two
+    private static final int LINEAR = 2*SUB_BUCKETS;       // values below this get their own bucket
+    private static final int BUCKETS = LINEAR + (63 - SUB_BITS)*SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count = 0;
+    private long sum = 0;
+    private long max = 0;
+
+    public synchronized void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+
+        counts[bucket(nanos)]++;
+        count++;
+        sum += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public synchronized long getCount() { return count; }
+    public synchronized long getMax() { return max; }
+    public synchronized double getMean() { return count == 0 ? 0 : (double)sum / count; }
+
+    // the value at the given percentile (0 -> 100), accurate to the bucket size
+    public synchronized long percentile(double percentile) {
+        if (count == 0)
+            return 0;
+
+        long target = Math.max(1, (long)Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= target)
+                return Math.min(max, highestValue(i));
+        }
+        return max;
+    }
+
+    public synchronized void reset() {
+        java.util.Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR)
+            return (int)value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS; // value >>> shift is in [64, 128)
+        return LINEAR + (shift - 1)*SUB_BUCKETS + (int)(value >>> shift) - SUB_BUCKETS;
+    }
+
+    // the largest value that lands in bucket i
+    static long highestValue(int i) {
+        if (i < LINEAR)
+            return i;
+
+        int shift = (i - LINEAR) / SUB_BUCKETS + 1;
+        long low = (long)((i - LINEAR) % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return low + (1L << shift) - 1;
+    }
+}
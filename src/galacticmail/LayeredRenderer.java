@@ -0,0 +1,357 @@
+package galacticmail;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+
+/**
+ * Draws a Game by repainting only what changed since the last frame, instead of the whole screen.
+ * The background and the HUD title are composited once into a static layer, and the finished frame is kept in a
+ * scene image. Each frame the tiles under every sprite's old and new bounds (and under HUD text that changed) are
+ * marked dirty. Anything drawn over a dirty tile is going to be redrawn whole, so its tiles are marked dirty as well,
+ * until everything that gets redrawn lies entirely on dirty tiles. Dirty tiles are merged into rectangles (runs),
+ * which get the static layer copied back, then everything marked for redrawing is drawn once in the usual order.
+ * No clip is needed (setting one makes Java2D build a clip region), so like Game.render a frame allocates nothing.
+ * Only the runs are copied to the screen, so a frame costs about as much fill as the sprites cover.
+ * With a GraphicsConfiguration both layers are VolatileImages, rebuilt whenever their contents are lost.
+ * Without one (headless) they are BufferedImages.
+ */
+public class LayeredRenderer {
+    private static final int TILE = 16;
+    private static final long FULL_PRESENT_NANOS = 1000000000L; // copy the whole scene to the screen this often
+
+    // what a drawn rectangle holds, kinds below MESSAGE move or come and go from frame to frame
+    private static final int ASTEROID = 0;
+    private static final int MOON = 1;
+    private static final int ROCKET = 2;
+    private static final int METRICS = 3;
+    private static final int MESSAGE = 4;
+    private static final int STATUS = 5;
+
+    private final Game game;
+    private final GraphicsConfiguration config; // null to use BufferedImages
+    private final int width;
+    private final int height;
+    private final int cols;
+    private final int rows;
+    private final Hud hud;
+
+    private Image staticLayer;
+    private Image scene;
+    private Graphics2D sceneGraphics; // kept between frames, recreated along with the scene
+    private boolean repaintAll = true;
+    private long lastFullPresent;
+
+    private final boolean[] dirty;  // tiles, row by row
+    private int[] runs = new int[64]; // x, y, width, height of each dirty run
+    private int runCount = 0;
+
+    private Rects drawn = new Rects();    // what this frame draws, in drawing order
+    private Rects previous = new Rects(); // what the last frame drew
+    private final Rectangle bounds = new Rectangle();
+
+    // what was on screen last frame
+    private boolean shownRunning;
+    private boolean shownWin;
+
+    public LayeredRenderer(Game game, GraphicsConfiguration config) {
+        this.game = game;
+        this.config = config;
+        this.width = Game.WIDTH;
+        this.height = Game.HEIGHT;
+        this.cols = (width + TILE - 1)/TILE;
+        this.rows = (height + TILE - 1)/TILE;
+        this.dirty = new boolean[cols*rows];
+        this.hud = new Hud(width, height);
+    }
+
+    // repaint and present everything on the next frame
+    public void repaintAll() { repaintAll = true; }
+
+    // draw the next frame onto screen, with entity positions interpolated as in Game.render
+    public void render(Graphics2D screen, float alpha) {
+        synchronized (game) {
+            long start = System.nanoTime();
+            validate();
+
+            Rects swap = previous;
+            previous = drawn;
+            drawn = swap;
+            drawn.clear();
+            Arrays.fill(dirty, false);
+
+            collect(alpha);
+            if (repaintAll)
+                Arrays.fill(dirty, true);
+            spreadDirty();
+            findRuns();
+
+            compose(alpha);
+            if (scene instanceof VolatileImage && ((VolatileImage)scene).contentsLost()) {
+                repaintAll = true; // try again from scratch next frame
+                return;
+            }
+
+            present(screen, start);
+            repaintAll = false;
+            game.getMetrics().recordFrame(System.nanoTime() - start);
+        }
+    }
+
+    // make sure both layers exist and still hold their contents
+    private void validate() {
+        if (config == null) {
+            if (scene == null) {
+                staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                scene = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                sceneGraphics = (Graphics2D)scene.getGraphics();
+                drawStaticLayer();
+                repaintAll = true;
+            }
+            return;
+        }
+
+        int status = staticLayer == null ? VolatileImage.IMAGE_INCOMPATIBLE : ((VolatileImage)staticLayer).validate(config);
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE)
+            staticLayer = config.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+        if (status != VolatileImage.IMAGE_OK) {
+            drawStaticLayer();
+            repaintAll = true;
+        }
+
+        status = scene == null ? VolatileImage.IMAGE_INCOMPATIBLE : ((VolatileImage)scene).validate(config);
+        if (status == VolatileImage.IMAGE_INCOMPATIBLE)
+            scene = config.createCompatibleVolatileImage(width, height, Transparency.OPAQUE);
+        if (status != VolatileImage.IMAGE_OK) {
+            if (sceneGraphics != null)
+                sceneGraphics.dispose();
+            sceneGraphics = (Graphics2D)scene.getGraphics();
+            repaintAll = true;
+        }
+    }
+
+    private void drawStaticLayer() {
+        Graphics2D g = (Graphics2D)staticLayer.getGraphics();
+        g.drawImage(Assets.get().background, 0, 0, null);
+        hud.renderTitle(g);
+        g.dispose();
+    }
+
+    // list what gets drawn this frame, and mark everything that moved or changed as dirty
+    private void collect(float alpha) {
+        boolean running = game.isRunning();
+        boolean win = game.isWin();
+        if (running != shownRunning || (!running && win != shownWin))
+            repaintAll = true; // level started or ended
+        shownRunning = running;
+        shownWin = win;
+
+        // whatever moved since last frame has to be painted over where it was
+        // (the message and status strip never move, they're marked below when they change)
+        for (int k = 0; k < previous.count; k++) {
+            if (previous.kind[k] < MESSAGE)
+                markDirty(previous.x[k], previous.y[k], previous.width[k], previous.height[k]);
+        }
+
+        if (running) {
+            Camera camera = game.getCamera();
+            camera.frame(alpha);
+
+            EntityStore<Asteroid> asteroids = game.getAsteroids();
+            for (int i = 0; i < asteroids.size(); i++) { // asteroids rendered behind moons
+                asteroids.get(i).bounds(alpha, camera, bounds);
+                add(ASTEROID, i, true);
+            }
+
+            EntityStore<Moon> moons = game.getMoons();
+            for (int i = 0; i < moons.size(); i++) {
+                moons.get(i).bounds(alpha, camera, bounds);
+                add(MOON, i, true);
+            }
+
+            for (int r = 0; r < game.getRacerCount(); r++) {
+                if (!game.getRacer(r).isCrashed()) {
+                    game.getRacer(r).bounds(alpha, camera, bounds);
+                    add(ROCKET, r, true);
+                }
+            }
+        } else {
+            bounds.setBounds(0, 0, width, height);
+            add(MESSAGE, 0, false); // doesn't change until the level does
+        }
+
+        bounds.setBounds(hud.getStatusX(), 0, hud.getStatusWidth(), hud.getStatusHeight());
+        add(STATUS, 0, !hud.isStatusShown(game.getLevel(), game.getPlayer().getScore()));
+
+        if (game.isShowingMetrics()) {
+            bounds.setBounds(0, 0, hud.getMetricsWidth(), hud.getMetricsHeight());
+            add(METRICS, 0, true);
+        }
+    }
+
+    private void add(int kind, int slot, boolean changed) {
+        drawn.add(kind, slot, bounds);
+        if (changed)
+            markDirty(bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    private void markDirty(int x, int y, int w, int h) {
+        int c0 = Math.max(0, Math.floorDiv(x, TILE)), c1 = Math.min(cols - 1, Math.floorDiv(x + w - 1, TILE));
+        int r0 = Math.max(0, Math.floorDiv(y, TILE)), r1 = Math.min(rows - 1, Math.floorDiv(y + h - 1, TILE));
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++)
+                dirty[r*cols + c] = true;
+        }
+    }
+
+    // true if any tile under the rectangle is dirty
+    private boolean isAnyDirty(int x, int y, int w, int h) {
+        int c0 = Math.max(0, Math.floorDiv(x, TILE)), c1 = Math.min(cols - 1, Math.floorDiv(x + w - 1, TILE));
+        int r0 = Math.max(0, Math.floorDiv(y, TILE)), r1 = Math.min(rows - 1, Math.floorDiv(y + h - 1, TILE));
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                if (dirty[r*cols + c])
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    // pick what has to be redrawn: everything over a dirty tile, with all of its tiles made dirty in turn
+    // (they get the static layer copied back), until nothing more overlaps the dirty area
+    private void spreadDirty() {
+        boolean grew = true;
+        while (grew) {
+            grew = false;
+            for (int d = 0; d < drawn.count; d++) {
+                if (!drawn.redraw[d] && isAnyDirty(drawn.x[d], drawn.y[d], drawn.width[d], drawn.height[d])) {
+                    drawn.redraw[d] = true;
+                    markDirty(drawn.x[d], drawn.y[d], drawn.width[d], drawn.height[d]);
+                    grew = true;
+                }
+            }
+        }
+    }
+
+    // merge the dirty tiles into rectangles: take the run of dirty tiles starting at each dirty tile,
+    // and grow it downwards for as long as the whole run is dirty in the next row too
+    private void findRuns() {
+        runCount = 0;
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (!dirty[r*cols + c])
+                    continue;
+
+                int first = c;
+                while (c + 1 < cols && dirty[r*cols + c + 1])
+                    c++;
+
+                int last = r;
+                while (last + 1 < rows && isDirty(last + 1, first, c))
+                    last++;
+
+                for (int rr = r; rr <= last; rr++)
+                    Arrays.fill(dirty, rr*cols + first, rr*cols + c + 1, false);
+
+                if (4*runCount == runs.length)
+                    runs = Arrays.copyOf(runs, runs.length*2);
+                int x = first*TILE, y = r*TILE;
+                runs[4*runCount] = x;
+                runs[4*runCount + 1] = y;
+                runs[4*runCount + 2] = Math.min(width, (c + 1)*TILE) - x;
+                runs[4*runCount + 3] = Math.min(height, (last + 1)*TILE) - y;
+                runCount++;
+            }
+        }
+    }
+
+    // true if tiles first..last of row are all dirty
+    private boolean isDirty(int row, int first, int last) {
+        for (int c = first; c <= last; c++) {
+            if (!dirty[row*cols + c])
+                return false;
+        }
+        return true;
+    }
+
+    // repaint the dirty runs of the scene: the static layer under them, then whatever is drawn over them.
+    // those all lie entirely on the runs (see spreadDirty), so nothing outside the runs is touched
+    private void compose(float alpha) {
+        Graphics2D g = sceneGraphics;
+        for (int k = 0; k < runCount; k++) {
+            int x = runs[4*k], y = runs[4*k + 1], w = runs[4*k + 2], h = runs[4*k + 3];
+            g.drawImage(staticLayer, x, y, x + w, y + h, x, y, x + w, y + h, null);
+        }
+
+        for (int d = 0; d < drawn.count; d++) {
+            if (drawn.redraw[d])
+                draw(g, d, alpha);
+        }
+    }
+
+    private void draw(Graphics2D g, int d, float alpha) {
+        switch (drawn.kind[d]) {
+            case ASTEROID: game.getAsteroids().get(drawn.slot[d]).render(g, alpha, game.getCamera()); break;
+            case MOON: game.getMoons().get(drawn.slot[d]).render(g, alpha, game.getCamera()); break;
+            case ROCKET: game.getRacer(drawn.slot[d]).render(g, alpha, game.getCamera()); break;
+            case MESSAGE: hud.renderMessage(g, game.isWin()); break;
+            case STATUS: hud.renderStatus(g, game.getLevel(), game.getPlayer().getScore()); break;
+            case METRICS: hud.renderMetrics(g, game.getMetrics()); break;
+        }
+    }
+
+    // copy the dirty runs to the screen, or everything now and then in case the window was drawn over
+    private void present(Graphics2D screen, long now) {
+        if (repaintAll || now - lastFullPresent >= FULL_PRESENT_NANOS) {
+            screen.drawImage(scene, 0, 0, null);
+            lastFullPresent = now;
+            return;
+        }
+
+        for (int k = 0; k < runCount; k++) {
+            int x = runs[4*k], y = runs[4*k + 1], w = runs[4*k + 2], h = runs[4*k + 3];
+            screen.drawImage(scene, x, y, x + w, y + h, x, y, x + w, y + h, null);
+        }
+    }
+
+    // a growable list of drawn rectangles
+    private static final class Rects {
+        int[] kind = new int[64];
+        int[] slot = new int[64];
+        int[] x = new int[64];
+        int[] y = new int[64];
+        int[] width = new int[64];
+        int[] height = new int[64];
+        boolean[] redraw = new boolean[64]; // drawn again this frame (see spreadDirty)
+        int count = 0;
+
+        void add(int kind, int slot, Rectangle r) {
+            if (count == x.length) {
+                this.kind = Arrays.copyOf(this.kind, count*2);
+                this.slot = Arrays.copyOf(this.slot, count*2);
+                x = Arrays.copyOf(x, count*2);
+                y = Arrays.copyOf(y, count*2);
+                width = Arrays.copyOf(width, count*2);
+                height = Arrays.copyOf(height, count*2);
+                redraw = Arrays.copyOf(redraw, count*2);
+            }
+            this.kind[count] = kind;
+            this.slot[count] = slot;
+            x[count] = r.x;
+            y[count] = r.y;
+            width[count] = r.width;
+            height[count] = r.height;
+            redraw[count] = false;
+            count++;
+        }
+
+        void clear() { count = 0; }
+    }
+}
@@ -0,0 +1,82 @@
+package galacticmail;
+
+import java.util.Random;
+
+/**
+ * The moons and asteroids a level starts with, generated apart from the game so that it can be done ahead of time.
+ * They're spawned into stores of their own with the same Moon.spawn and Asteroid.spawn calls (and the same draws
+ * from the game's Random) as generating them in place. If the game is being drawn their sprites are made here too,
+ * and packed into the SpriteAtlas if the game draws from it. Starting the level then only copies them into the
+ * game's stores with Moon.restore and Asteroid.restore, taking the sprites and regions along.
+ * A large world only needs its seed drawn here, its chunks are generated as they're streamed in (see World).
+ * Game generates the next level's layout on a background thread while the win/lose screen is up,
+ * see Game.prepareNextLevel.
+ */
+final class LevelLayout {
+    private final EntityStore<Moon> moons = new EntityStore<>(16);
+    private final EntityStore<Asteroid> asteroids = new EntityStore<>(64);
+    private int level = -1; // the level this is the layout of, -1 if none
+    private long worldSeed;
+
+    int getLevel() { return level; }
+    long getWorldSeed() { return worldSeed; }
+
+    // lay out a level, drawing from rng. drawn makes the sprites as well, atlas also adds them to the SpriteAtlas
+    void generate(Random rng, int level, boolean largeWorld, boolean drawn, boolean atlas) {
+        Assets assets = Assets.get();
+        this.level = level;
+        moons.clear();
+        asteroids.clear();
+
+        if (largeWorld) {
+            worldSeed = rng.nextLong();
+            return;
+        }
+
+        // Randomly generate moons and asteroids
+        int max_moons = 5 + level;
+        int max_asteroids = 10 + 4*level;
+
+        for (int x = 50; x <= Game.WIDTH-50; x += 100*2) {
+            for (int y = 100; y <= Game.HEIGHT-100; y += 100*2) {
+                if (moons.size() >= max_moons) break;
+                if (rng.nextFloat() < 0.5) Moon.spawn(moons, rng, assets.moon, x, y, 8, 64, 64, 8);
+            }
+        }
+
+        for (int x = 50; x <= Game.WIDTH-50; x += 100*2) {
+            for (int y = 100; y <= Game.HEIGHT-100; y += 100*2) {
+                if (asteroids.size() >= max_asteroids) break;
+                if (rng.nextFloat() < 0.5) Asteroid.spawn(asteroids, rng, assets.asteroid, x, y);
+            }
+        }
+
+        if (atlas) {
+            for (int i = 0; i < moons.size(); i++)
+                moons.get(i).region();
+            for (int i = 0; i < asteroids.size(); i++)
+                asteroids.get(i).region();
+        } else if (drawn) {
+            for (int i = 0; i < moons.size(); i++)
+                moons.get(i).sprite();
+            for (int i = 0; i < asteroids.size(); i++)
+                asteroids.get(i).sprite();
+        }
+    }
+
+    // copy the layout into a game's (empty) stores, in the order it was generated. the layout is used up
+    void apply(EntityStore<Moon> gameMoons, EntityStore<Asteroid> gameAsteroids) {
+        Assets assets = Assets.get();
+        for (int i = 0; i < moons.size(); i++) {
+            Moon moon = moons.get(i);
+            Moon.restore(gameMoons, assets.moon, moons.x[i], moons.y[i], moons.vx[i], moons.vy[i],
+                    moon.getFrame(), moon.getScale(), 64, 64, 8).copySprite(moon);
+        }
+        for (int i = 0; i < asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.get(i);
+            Asteroid.restore(gameAsteroids, assets.asteroid, asteroids.x[i], asteroids.y[i], asteroids.vx[i],
+                    asteroids.vy[i], asteroid.getAngle()).copySprite(asteroid);
+        }
+        level = -1;
+    }
+}
@@ -0,0 +1,191 @@
+package galacticmail;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.NotificationEmitter;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+/**
+ * Per-tick instrumentation of the game: latency histograms for each phase of Game.update and for rendering,
+ * entity and collision-pair counts, GC pauses, and with --alloc-stats the bytes each frame allocated.
+ * Exposed through the F3 overlay (see Hud.renderMetrics), JMX (see MetricsMXBean) and a periodic CSV or JSON dump.
+ */
+public class Metrics implements MetricsMXBean {
+    public static final int SUMMARY_LINES = 6; // lines returned by summary()
+
+    public final LatencyHistogram tick = new LatencyHistogram();
+    public final LatencyHistogram entityUpdate = new LatencyHistogram(); // moving moons and asteroids
+    public final LatencyHistogram collision = new LatencyHistogram();    // grid update and all collision passes
+    public final LatencyHistogram playerUpdate = new LatencyHistogram();
+    public final LatencyHistogram render = new LatencyHistogram();
+    public final LatencyHistogram gcPause = new LatencyHistogram();
+
+    private volatile long ticks = 0;  // since the last reset, like the histograms
+    private volatile long frames = 0;
+    private volatile int moons = 0;
+    private volatile int asteroids = 0;
+    private volatile int collisionPairs = 0; // pairs that bounced in the last tick
+    private volatile long allocatingFrames = 0;     // frames that allocated anything, only counted with --alloc-stats
+    private volatile long renderAllocatedMax = 0;   // bytes allocated by the worst of them
+
+    // called by Game.update at the end of a tick
+    public void recordTick(long nanos, int moons, int asteroids, int collisionPairs) {
+        tick.record(nanos);
+        this.moons = moons;
+        this.asteroids = asteroids;
+        this.collisionPairs = collisionPairs;
+        ticks++;
+    }
+
+    public void recordFrame(long nanos) {
+        render.record(nanos);
+        frames++;
+    }
+
+    // called by GameLoop with what AllocationCounter measured for a frame, -1 if it can't measure
+    public void recordRenderAllocation(long bytes) {
+        if (bytes <= 0)
+            return;
+
+        allocatingFrames++;
+        renderAllocatedMax = Math.max(renderAllocatedMax, bytes);
+    }
+
+    // record every GC pause from now on
+    public void watchGarbageCollection() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(gc instanceof NotificationEmitter))
+                continue;
+
+            ((NotificationEmitter)gc).addNotificationListener((notification, handback) -> {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+                    return;
+
+                GarbageCollectionNotificationInfo info =
+                        GarbageCollectionNotificationInfo.from((CompositeData)notification.getUserData());
+                gcPause.record(info.getGcInfo().getDuration() * 1000000L); // reported in milliseconds
+            }, null, null);
+        }
+    }
+
+    // publish this as galacticmail:type=Metrics
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName("galacticmail:type=Metrics"));
+        } catch (Exception e) {
+            System.err.println("*** could not register metrics MBean: " + e + " ***");
+        }
+    }
+
+    // append a line to file every period (CSV, or JSON lines if the file name ends in .json)
+    public void startDumping(String file, long periodMillis) {
+        boolean json = file.endsWith(".json");
+        Thread dumper = new Thread(() -> {
+            try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+                if (!json)
+                    out.println(csvHeader());
+
+                while (true) {
+                    Thread.sleep(periodMillis);
+                    out.println(json ? toJson() : toCsv());
+                    out.flush();
+                }
+            } catch (IOException e) {
+                System.err.println("*** could not write metrics to " + file + " ***");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "metrics-dump");
+        dumper.setDaemon(true);
+        dumper.start();
+    }
+
+    public static String csvHeader() {
+        return "time,ticks,frames,moons,asteroids,collision_pairs,"
+                + "tick_p50_us,tick_p99_us,tick_max_us,entity_update_p99_us,collision_p99_us,player_update_p99_us,"
+                + "render_p50_us,render_p99_us,render_max_us,allocating_frames,render_allocated_max,"
+                + "gc_count,gc_pause_p99_us,gc_pause_max_us";
+    }
+
+    public String toCsv() {
+        return String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f,%d,%d,%d,%.1f,%.1f",
+                System.currentTimeMillis(), getTicks(), getFrames(), getMoons(), getAsteroids(), getCollisionPairs(),
+                getTickP50(), getTickP99(), getTickMax(), getEntityUpdateP99(), getCollisionP99(), getPlayerUpdateP99(),
+                getRenderP50(), getRenderP99(), getRenderMax(), getAllocatingFrames(), getRenderAllocatedMax(),
+                getGcCount(), getGcPauseP99(), getGcPauseMax());
+    }
+
+    public String toJson() {
+        return String.format(Locale.ROOT, "{\"time\":%d,\"ticks\":%d,\"frames\":%d,\"moons\":%d,\"asteroids\":%d,"
+                        + "\"collisionPairs\":%d,\"tick\":%s,\"entityUpdate\":%s,\"collision\":%s,\"playerUpdate\":%s,"
+                        + "\"render\":%s,\"allocatingFrames\":%d,\"renderAllocatedMax\":%d,\"gcPause\":%s}",
+                System.currentTimeMillis(), getTicks(), getFrames(), getMoons(), getAsteroids(), getCollisionPairs(),
+                json(tick), json(entityUpdate), json(collision), json(playerUpdate), json(render),
+                getAllocatingFrames(), getRenderAllocatedMax(), json(gcPause));
+    }
+
+    // a few lines of text for the debug overlay
+    public String[] summary() {
+        return new String[] {
+                String.format(Locale.ROOT, "tick    p50 %6.1f  p99 %6.1f  max %7.1f us", getTickP50(), getTickP99(), getTickMax()),
+                String.format(Locale.ROOT, "  move p99 %6.1f  collide p99 %6.1f  player p99 %6.1f us",
+                        getEntityUpdateP99(), getCollisionP99(), getPlayerUpdateP99()),
+                String.format(Locale.ROOT, "render  p50 %6.1f  p99 %6.1f  max %7.1f us", getRenderP50(), getRenderP99(), getRenderMax()),
+                String.format(Locale.ROOT, "alloc   %d frames  max %d bytes", getAllocatingFrames(), getRenderAllocatedMax()),
+                String.format(Locale.ROOT, "gc      %d pauses  p99 %.1f  max %.1f us", getGcCount(), getGcPauseP99(), getGcPauseMax()),
+                String.format(Locale.ROOT, "%d moons  %d asteroids  %d pairs  %d ticks  %d frames",
+                        getMoons(), getAsteroids(), getCollisionPairs(), getTicks(), getFrames())
+        };
+    }
+
+    private static String json(LatencyHistogram h) {
+        return String.format(Locale.ROOT, "{\"count\":%d,\"meanUs\":%.1f,\"p50Us\":%.1f,\"p90Us\":%.1f,\"p99Us\":%.1f,\"p999Us\":%.1f,\"maxUs\":%.1f}",
+                h.getCount(), h.getMean()/1000, us(h, 50), us(h, 90), us(h, 99), us(h, 99.9), h.getMax()/1000.0);
+    }
+
+    private static double us(LatencyHistogram h, double percentile) { return h.percentile(percentile)/1000.0; }
+
+    @Override public long getTicks() { return ticks; }
+    @Override public long getFrames() { return frames; }
+    @Override public int getMoons() { return moons; }
+    @Override public int getAsteroids() { return asteroids; }
+    @Override public int getCollisionPairs() { return collisionPairs; }
+
+    @Override public double getTickP50() { return us(tick, 50); }
+    @Override public double getTickP99() { return us(tick, 99); }
+    @Override public double getTickMax() { return tick.getMax()/1000.0; }
+    @Override public double getEntityUpdateP99() { return us(entityUpdate, 99); }
+    @Override public double getCollisionP99() { return us(collision, 99); }
+    @Override public double getPlayerUpdateP99() { return us(playerUpdate, 99); }
+    @Override public double getRenderP50() { return us(render, 50); }
+    @Override public double getRenderP99() { return us(render, 99); }
+    @Override public double getRenderMax() { return render.getMax()/1000.0; }
+    @Override public long getAllocatingFrames() { return allocatingFrames; }
+    @Override public long getRenderAllocatedMax() { return renderAllocatedMax; }
+
+    @Override public long getGcCount() { return gcPause.getCount(); }
+    @Override public double getGcPauseP99() { return us(gcPause, 99); }
+    @Override public double getGcPauseMax() { return gcPause.getMax()/1000.0; }
+
+    // start counting afresh, so counts and latencies in a dump cover the same stretch of time
+    @Override
+    public void reset() {
+        ticks = 0;
+        frames = 0;
+        allocatingFrames = 0;
+        renderAllocatedMax = 0;
+        tick.reset();
+        entityUpdate.reset();
+        collision.reset();
+        playerUpdate.reset();
+        render.reset();
+        gcPause.reset();
+    }
+}
@@ -0,0 +1,32 @@
+package galacticmail;
+
+/**
+ * JMX view of the game's Metrics (registered as galacticmail:type=Metrics).
+ * Latencies are in microseconds. Tick and frame counts, render allocations and the latencies all start over on reset.
+ * Render allocations are only counted when the game runs with --alloc-stats.
+ */
+public interface MetricsMXBean {
+    long getTicks();
+    long getFrames();
+    int getMoons();
+    int getAsteroids();
+    int getCollisionPairs();
+
+    double getTickP50();
+    double getTickP99();
+    double getTickMax();
+    double getEntityUpdateP99();
+    double getCollisionP99();
+    double getPlayerUpdateP99();
+    double getRenderP50();
+    double getRenderP99();
+    double getRenderMax();
+    long getAllocatingFrames();
+    long getRenderAllocatedMax();
+
+    long getGcCount();
+    double getGcPauseP99();
+    double getGcPauseMax();
+
+    void reset();
+}
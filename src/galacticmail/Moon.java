@@ -0,0 +1,135 @@
+package galacticmail;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Moons are what the player delivers mail to. Landing on a moon and taking off again destroys it.
+ * Position and velocity are kept in an EntityStore, this is a view of one entity in it.
+ * The scaled sprite is only made when the moon is first drawn, like Asteroid's.
+ */
+public class Moon implements Collideable {
+    private EntityStore<Moon> store;
+    private int id = -1; // see EntityStore.add
+    private BufferedImage sheet; // the spritesheet
+    private int cols;
+    private int frame; // which moon of the spritesheet
+    private float scale;
+
+    private boolean destroyed = false; // true if the moon should be removed
+    private BufferedImage sprite; // pre-scaled image from the texture cache, null until first drawn
+    private int region = -1;      // sprite's SpriteAtlas region, looked up when first drawn by a SpriteBatch
+
+    public Moon(EntityStore<Moon> store, Random rng, BufferedImage moons, float x, float y, int nMoons, int sx, int sy, int cols) {
+        this.store = store;
+        init(rng, moons, x, y, nMoons, sx, sy, cols);
+    }
+
+    // a new moon, reusing one that was removed from the store if there is one
+    public static Moon spawn(EntityStore<Moon> store, Random rng, BufferedImage moons, float x, float y, int nMoons, int sx, int sy, int cols) {
+        Moon moon = store.parked();
+        if (moon == null)
+            return new Moon(store, rng, moons, x, y, nMoons, sx, sy, cols);
+
+        moon.init(rng, moons, x, y, nMoons, sx, sy, cols);
+        return moon;
+    }
+
+    private void init(Random rng, BufferedImage moons, float x, float y, int nMoons, int sx, int sy, int cols) {
+        int moon = rng.nextInt(nMoons); // generate random moon image from spritesheet
+        float vx = rng.nextFloat()*2 - 1;
+        float vy = rng.nextFloat()*1 - 0.5f;
+        float scale = rng.nextFloat()+0.75f;
+        set(moons, x, y, vx, vy, moon, scale, sx, sy, cols);
+    }
+
+    // bring back a moon saved with getFrame and getScale (see World), reusing a removed one if there is one
+    public static Moon restore(EntityStore<Moon> store, BufferedImage moons, float x, float y, float vx, float vy,
+                               int frame, float scale, int sx, int sy, int cols) {
+        Moon moon = store.parked();
+        if (moon == null)
+            moon = new Moon(store);
+
+        moon.set(moons, x, y, vx, vy, frame, scale, sx, sy, cols);
+        return moon;
+    }
+
+    private Moon(EntityStore<Moon> store) { this.store = store; }
+
+    private void set(BufferedImage moons, float x, float y, float vx, float vy, int frame, float scale, int sx, int sy, int cols) {
+        this.sheet = moons;
+        this.cols = cols;
+        this.frame = frame;
+        this.scale = scale;
+        this.sprite = null;
+        this.region = -1;
+        this.destroyed = false;
+
+        // collision uses the unscaled size
+        if (id < 0)
+            id = store.add(this, x, y, vx, vy, sx, sy);
+        else
+            store.respawn(id, x, y, vx, vy, sx, sy);
+    }
+
+    public boolean isDestroyed() { return destroyed; }
+    public int getFrame() { return frame; }
+    public float getScale() { return scale; }
+
+    // the frame cut out of the spritesheet and scaled, made the first time it's asked for
+    BufferedImage sprite() {
+        if (sprite == null) {
+            int sx = (int)getWidth(), sy = (int)getHeight(); // the size of a frame, see set
+            sprite = TextureCache.get(sheet, frame % cols * sx, frame/cols * sy, sx, sy, (int)(sx*scale), (int)(sy*scale));
+        }
+        return sprite;
+    }
+
+    // where the sprite is in the SpriteAtlas (see SpriteBatch)
+    int region() {
+        if (region < 0)
+            region = SpriteAtlas.region(sprite());
+        return region;
+    }
+
+    // take other's sprite and region if they were already made, when both show the same frame (see LevelLayout.apply)
+    void copySprite(Moon other) {
+        if (other.sheet == sheet && other.frame == frame && other.scale == scale) {
+            sprite = other.sprite;
+            region = other.region;
+        }
+    }
+
+    public float getX() { return store.x[store.slot(id)]; }
+    public float getY() { return store.y[store.slot(id)]; }
+    public float getVX() { return store.vx[store.slot(id)]; }
+    public float getVY() { return store.vy[store.slot(id)]; }
+    public void setVelocity(float vx, float vy) { int i = store.slot(id); store.vx[i] = vx; store.vy[i] = vy; }
+    public float getWidth() { return store.width[store.slot(id)]; };
+    public float getHeight() { return store.height[store.slot(id)]; };
+
+    public void teleport(float x, float y) { int i = store.slot(id); store.x[i] = x; store.y[i] = y; }
+    public void bounce() { setVelocity(-getVX(), -getVY()); }
+    public void destroy() { destroyed = true; }
+
+    // movement for all moons is done by EntityStore.update
+
+    public void render(Graphics2D g, float alpha, Camera camera) {
+        int i = store.slot(id);
+        float rx = camera.screenX(store.prevX[i], store.x[i], alpha);
+        float ry = camera.screenY(store.prevY[i], store.y[i], alpha);
+
+        g.drawImage(sprite(), (int)rx, (int)ry, null);
+    }
+
+    // the area render() draws to
+    public void bounds(float alpha, Camera camera, Rectangle r) {
+        int i = store.slot(id);
+        float rx = camera.screenX(store.prevX[i], store.x[i], alpha);
+        float ry = camera.screenY(store.prevY[i], store.y[i], alpha);
+
+        BufferedImage sprite = sprite();
+        r.setBounds((int)rx, (int)ry, sprite.getWidth(), sprite.getHeight());
+    }
+}
@@ -0,0 +1,226 @@
+package galacticmail;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the EntityStore movement and bounce passes on a ForkJoinPool.
+ * Movement is split into ranges of slots. Bouncing happens in three steps:
+ *  1. colliding pairs are found in parallel (positions don't change while bouncing, so the set of pairs is fixed),
+ *  2. pairs are grouped into connected components (entities that bounce off each other, directly or through others),
+ *  3. components are bounced in parallel, each one in ascending (i, j) order.
+ * Bounces in different components never touch the same entity, so the result is exactly the same
+ * as the single-threaded EntityStore.bouncePairs no matter how many threads are used.
+ */
+public class ParallelPhysics {
+    private static final int UPDATE_CHUNK = 2048;   // slots moved per task
+    private static final int PAIR_CHUNK = 512;      // slots searched for pairs per task
+    private static final int COMPONENT_CHUNK = 64;  // components bounced per task
+
+    private final ForkJoinPool pool;
+
+    // scratch space reused between ticks
+    private Pairs[] chunkPairs = new Pairs[0];
+    private SpatialGrid.Query[] queries = new SpatialGrid.Query[0];
+    private Pairs pairs = new Pairs();
+    private float[] steps = new float[0];   // max step of each update chunk
+    private int[] parent = new int[0];      // union-find forest over slots
+    private int[] pairCounts = new int[0];  // pairs per component root
+    private int[] pairStart = new int[0];   // where each root's pairs start in sorted
+    private int[] sorted = new int[0];      // pair indices grouped by component, in (i, j) order
+    private int[] components = new int[0];  // component roots in order of their first pair
+    private int componentCount = 0;
+
+    public ParallelPhysics(int threads) {
+        this.pool = new ForkJoinPool(Math.max(1, threads));
+    }
+
+    public int getThreads() { return pool.getParallelism(); }
+
+    public void shutdown() { pool.shutdown(); }
+
+    public void update(EntityStore<?> store) {
+        int end = store.size();
+        int chunks = (end + UPDATE_CHUNK - 1) / UPDATE_CHUNK;
+        if (steps.length < chunks)
+            steps = new float[chunks];
+
+        forEachChunk(chunks, c -> steps[c] = store.update(c*UPDATE_CHUNK, Math.min(end, (c + 1)*UPDATE_CHUNK)));
+
+        float maxStep = 0;
+        for (int c = 0; c < chunks; c++)
+            maxStep = Math.max(maxStep, steps[c]);
+        store.setMaxStep(maxStep);
+    }
+
+    // returns the number of pairs that bounced
+    public int bouncePairs(EntityStore<?> store, SpatialGrid grid) {
+        findPairs(store, grid);
+        if (pairs.count == 0)
+            return 0;
+
+        groupComponents(store.size());
+        forEachChunk((componentCount + COMPONENT_CHUNK - 1) / COMPONENT_CHUNK, c -> {
+            int last = Math.min(componentCount, (c + 1)*COMPONENT_CHUNK);
+
+            for (int k = c*COMPONENT_CHUNK; k < last; k++) {
+                int root = components[k];
+                for (int p = pairStart[root]; p < pairStart[root] + pairCounts[root]; p++) {
+                    int pair = sorted[p];
+                    store.bounce(pairs.a[pair], pairs.b[pair]);
+                }
+            }
+        });
+        return pairs.count;
+    }
+
+    // find all colliding pairs, in the same order EntityStore.bouncePairs visits them
+    private void findPairs(EntityStore<?> store, SpatialGrid grid) {
+        int end = store.size();
+        int chunks = (end + PAIR_CHUNK - 1) / PAIR_CHUNK;
+
+        if (chunkPairs.length < chunks) {
+            int old = chunkPairs.length;
+            chunkPairs = Arrays.copyOf(chunkPairs, chunks);
+            queries = Arrays.copyOf(queries, chunks);
+            for (int c = old; c < chunks; c++) {
+                chunkPairs[c] = new Pairs();
+                queries[c] = new SpatialGrid.Query();
+            }
+        }
+
+        float maxRadius = store.getMaxRadius();
+        forEachChunk(chunks, c -> {
+            Pairs out = chunkPairs[c];
+            SpatialGrid.Query query = queries[c];
+            int last = Math.min(end, (c + 1)*PAIR_CHUNK);
+            out.count = 0;
+
+            for (int i = c*PAIR_CHUNK; i < last; i++) {
+                int n = grid.query(store.x[i], store.y[i], store.radius[i] + maxRadius, query);
+
+                for (int k = 0; k < n; k++) {
+                    int j = query.candidate(k);
+                    if (j > i && store.collide(i, j))
+                        out.add(i, j);
+                }
+            }
+        });
+
+        // chunks cover ascending ranges of i, so concatenating them keeps (i, j) order
+        pairs.count = 0;
+        for (int c = 0; c < chunks; c++) {
+            Pairs p = chunkPairs[c];
+            for (int k = 0; k < p.count; k++)
+                pairs.add(p.a[k], p.b[k]);
+        }
+    }
+
+    // group the pairs by connected component, keeping (i, j) order inside each component
+    private void groupComponents(int end) {
+        if (parent.length < end) {
+            parent = new int[end];
+            pairCounts = new int[end];
+            pairStart = new int[end];
+        }
+        if (sorted.length < pairs.count) {
+            sorted = new int[pairs.a.length];
+            components = new int[pairs.a.length];
+        }
+
+        for (int p = 0; p < pairs.count; p++) {
+            parent[pairs.a[p]] = pairs.a[p];
+            parent[pairs.b[p]] = pairs.b[p];
+            pairCounts[pairs.a[p]] = 0;
+            pairCounts[pairs.b[p]] = 0;
+        }
+
+        for (int p = 0; p < pairs.count; p++) {
+            int ra = find(pairs.a[p]);
+            int rb = find(pairs.b[p]);
+            if (ra != rb)
+                parent[Math.max(ra, rb)] = Math.min(ra, rb);
+        }
+
+        // count pairs per component, and list components in order of their first pair
+        componentCount = 0;
+        for (int p = 0; p < pairs.count; p++) {
+            int root = find(pairs.a[p]);
+            if (pairCounts[root]++ == 0)
+                components[componentCount++] = root;
+        }
+
+        int offset = 0;
+        for (int k = 0; k < componentCount; k++) {
+            int root = components[k];
+            pairStart[root] = offset;
+            offset += pairCounts[root];
+            pairCounts[root] = 0; // reused as the fill position below
+        }
+
+        for (int p = 0; p < pairs.count; p++) {
+            int root = find(pairs.a[p]);
+            sorted[pairStart[root] + pairCounts[root]++] = p;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // run body(0) .. body(chunks - 1) across the pool, or inline if there's only one chunk
+    private void forEachChunk(int chunks, IntConsumer body) {
+        if (chunks <= 1 || pool.getParallelism() == 1) {
+            for (int c = 0; c < chunks; c++)
+                body.accept(c);
+        } else {
+            pool.invoke(new ChunkTask(0, chunks, body));
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final IntConsumer body;
+
+        ChunkTask(int from, int to, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                body.accept(from);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(from, mid, body), new ChunkTask(mid, to, body));
+        }
+    }
+
+    // a growable list of (a, b) slot pairs
+    private static final class Pairs {
+        int[] a = new int[64];
+        int[] b = new int[64];
+        int count = 0;
+
+        void add(int i, int j) {
+            if (count == a.length) {
+                a = Arrays.copyOf(a, count*2);
+                b = Arrays.copyOf(b, count*2);
+            }
+            a[count] = i;
+            b[count] = j;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package galacticmail;
+
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import javax.swing.*;
+
+/**
+ * One player's view of a race run by a RaceServer: sends the player's input once a tick and draws the race.
+ * The moons and asteroids are copies kept up to date by the server's STATE messages (see EntitySync), and are
+ * drawn interpolated between the last two states. The other rockets are drawn the same way, from the server's state.
+ * The player's own rocket is predicted: each tick's input moves it here straight away, then when a state arrives
+ * it is put back where the server had it and the inputs the server hasn't applied yet are played again on top.
+ * So the rocket answers the keys without waiting for the server, and still ends up where the server says.
+ * The rocket is flown by the keyboard, or by a Bot.
+ */
+public class RaceClient extends JPanel {
+    private static final int MAX_PENDING = 64; // inputs sent but not yet applied, older ones are forgotten
+
+    private final SocketChannel channel;
+    private final int racer; // which of the rockets is ours
+    private final long tickNanos;
+    private final Rocket[] rockets;
+    private final EntitySync<Moon> moons = new EntitySync<>(true, new EntityStore<>(16));
+    private final EntitySync<Asteroid> asteroids = new EntitySync<>(false, new EntityStore<>(64));
+    private final SpatialGrid moonGrid = new SpatialGrid(128, 128, Game.WIDTH, Game.HEIGHT); // for predicting landings
+    private final Camera camera = new Camera(Game.WIDTH, Game.HEIGHT);
+    private Hud hud; // created on first render
+    private ByteBuffer in = ByteBuffer.allocate(64*1024);
+    private final ByteBuffer out = ByteBuffer.allocate(64);
+
+    private final InputQueue input = new InputQueue(256);
+    private int heldKeys = 0;
+    private Bot bot;
+    private Snapshot snapshot;
+    private final Input controls = new Input();
+
+    // inputs sent and not yet applied by the server, by sequence number modulo MAX_PENDING
+    private long nextInput = 0;   // sequence number of the next input
+    private long firstPending = 0;
+    private final float[] pendingRotation = new float[MAX_PENDING];
+    private final boolean[] pendingTakeoff = new boolean[MAX_PENDING];
+
+    // the last state
+    private long tick = -1;
+    private int level = 1;
+    private byte status = RaceServer.RUNNING;
+    private long stateTime;  // when it arrived, for interpolating
+    private long predictTime; // when the rocket was last moved by our own input
+
+    private volatile boolean stopped = false;
+    private Thread reader;
+    private Thread ticker;
+    private Timer repaint;
+
+    // stats
+    private long states = 0;
+    private long bytesRead = 0;
+    private float maxCorrection = 0; // furthest the rocket was moved by a state, in pixels
+
+    /**
+     * The bot's (or keyboard's) input for a tick, as it will be sent.
+     */
+    private static final class Input implements Bot.Controls {
+        float rotation;
+        boolean takeoff;
+
+        @Override
+        public void rotate(float degrees) { rotation += degrees; }
+
+        @Override
+        public void takeoff() { takeoff = true; }
+    }
+
+    private RaceClient(SocketChannel channel, int racer, int racers, int ticksPerSecond) {
+        this.channel = channel;
+        this.racer = racer;
+        this.tickNanos = 1_000_000_000L/ticksPerSecond;
+
+        Assets assets = Assets.get();
+        this.rockets = new Rocket[racers];
+        for (int r = 0; r < racers; r++)
+            rockets[r] = new Rocket(assets.flying, assets.landed);
+    }
+
+    // join the race at host:port, waiting for the server to say which rocket is ours
+    public static RaceClient connect(String host, int port) throws IOException {
+        SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port));
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        ByteBuffer welcome = Wire.read(channel, ByteBuffer.allocate(64));
+        if (welcome.get() != Wire.WELCOME) {
+            channel.close();
+            throw new IOException("not a race server");
+        }
+
+        int racer = welcome.get();
+        int racers = welcome.get();
+        int width = welcome.getInt(), height = welcome.getInt();
+        int ticksPerSecond = (int)Wire.getVarint(welcome);
+        if (width != Game.WIDTH || height != Game.HEIGHT) {
+            channel.close();
+            throw new IOException("race world is " + width + "x" + height + ", only the screen size is supported");
+        }
+        return new RaceClient(channel, racer, racers, ticksPerSecond);
+    }
+
+    public int getRacer() { return racer; }
+    public synchronized long getTick() { return tick; }
+    public synchronized int getLevel() { return level; }
+    public synchronized long getStates() { return states; }
+    public synchronized long getBytesRead() { return bytesRead; }
+    public synchronized float getMaxCorrection() { return maxCorrection; }
+    public synchronized long getScore() { return rockets[racer].getScore(); }
+
+    // fly our rocket with bot instead of the keyboard
+    public synchronized void setBot(Bot bot) {
+        this.bot = bot;
+        if (bot != null && snapshot == null)
+            snapshot = new Snapshot();
+    }
+
+    // open a window showing the race and listening for input
+    public void openWindow() {
+        JFrame frame = new JFrame();
+        frame.setResizable(false);
+        frame.setLocation(50, 50);
+        frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        frame.add(this);
+        frame.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                int key = GameController.key(e);
+                if (key >= 0)
+                    input.offer(InputQueue.pressed(key));
+                else if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
+                    System.exit(0);
+            }
+
+            @Override
+            public void keyReleased(KeyEvent e) {
+                int key = GameController.key(e);
+                if (key >= 0)
+                    input.offer(InputQueue.released(key));
+            }
+        });
+        frame.setUndecorated(true);
+        frame.setSize(Game.WIDTH, Game.HEIGHT);
+        frame.setVisible(true);
+
+        repaint = new Timer(1000/60, e -> repaint());
+        repaint.start();
+    }
+
+    // start reading states and sending input
+    public void start() {
+        reader = new Thread(this::read, "race-reader");
+        ticker = new Thread(this::send, "race-input");
+        reader.start();
+        ticker.start();
+    }
+
+    // leave the race
+    public void stop() throws InterruptedException {
+        stopped = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+        }
+        ticker.interrupt();
+        ticker.join();
+        reader.join();
+        if (repaint != null)
+            repaint.stop();
+    }
+
+    // wait until the server has closed the connection and every state it sent has been applied
+    public void awaitClosed() throws InterruptedException { reader.join(); }
+
+    private void read() {
+        try {
+            while (!stopped) {
+                in = Wire.read(channel, in);
+                if (in.get() == Wire.STATE)
+                    apply(in);
+            }
+        } catch (EOFException e) { // the server ended the race
+        } catch (IOException e) {
+            if (!stopped)
+                System.err.println("*** left the race: " + e.getMessage() + " ***");
+        } finally {
+            stopped = true;
+        }
+    }
+
+    // send one input a tick, moving our rocket by it straight away
+    private void send() {
+        long next = System.nanoTime();
+        try {
+            while (!stopped) {
+                next += tickNanos;
+                long wait = next - System.nanoTime();
+                if (wait > 0)
+                    Thread.sleep(wait/1_000_000, (int)(wait%1_000_000));
+
+                if (step()) {
+                    out.flip();
+                    while (out.hasRemaining())
+                        channel.write(out);
+                }
+            }
+        } catch (InterruptedException e) {
+        } catch (IOException e) {
+            stopped = true;
+        }
+    }
+
+    // gather this tick's input into out and predict it, returns false if there is nothing to send
+    private synchronized boolean step() {
+        Rocket rocket = rockets[racer];
+        processInput();
+        if (tick < 0 || status != RaceServer.RUNNING || rocket.isCrashed())
+            return false;
+
+        if (bot != null) {
+            snapshot.capture(tick, level, moons.getCopy().size(), null, rocket, moons.getCopy(), asteroids.getCopy());
+            bot.act(snapshot, controls);
+        }
+
+        // rotation goes over the wire in steps of 1/ROTATION_SCALE degrees, the server turns by exactly that
+        float rotation = Math.round(controls.rotation*Wire.ROTATION_SCALE)/Wire.ROTATION_SCALE;
+        boolean takeoff = controls.takeoff;
+        controls.rotation = 0;
+        controls.takeoff = false;
+
+        long seq = nextInput++;
+        if (nextInput - firstPending > MAX_PENDING)
+            firstPending = nextInput - MAX_PENDING;
+        pendingRotation[(int)(seq%MAX_PENDING)] = rotation;
+        pendingTakeoff[(int)(seq%MAX_PENDING)] = takeoff;
+
+        out.clear();
+        int frame = Wire.begin(out, Wire.INPUT);
+        Wire.putVarint(out, seq);
+        Wire.putSigned(out, Math.round(rotation*Wire.ROTATION_SCALE));
+        out.put((byte)(takeoff ? 1 : 0));
+        Wire.end(out, frame);
+
+        predict(rocket, rotation, takeoff);
+        predictTime = System.nanoTime();
+        return true;
+    }
+
+    // the keyboard's part of this tick's input, the same keys as GameController (and taps count, see Game)
+    private void processInput() {
+        int pressedKeys = 0;
+        for (int event = input.poll(); event != InputQueue.EMPTY; event = input.poll()) {
+            int key = InputQueue.key(event);
+            if (!InputQueue.isPress(event)) {
+                heldKeys &= ~(1 << key);
+                continue;
+            }
+
+            heldKeys |= 1 << key;
+            pressedKeys |= 1 << key;
+            if (key == InputQueue.LAUNCH)
+                controls.takeoff();
+        }
+
+        int down = heldKeys | pressedKeys;
+        if ((down & 1 << InputQueue.LEFT) != 0)
+            controls.rotate(-5);
+        if ((down & 1 << InputQueue.RIGHT) != 0)
+            controls.rotate(5);
+    }
+
+    // move the rocket through one tick of input, in the same order as the server: input, movement, then landing.
+    // landing only puts the rocket on the moon, the server works out the score
+    private void predict(Rocket rocket, float rotation, boolean takeoff) {
+        if (takeoff && rocket.getState() == RocketState.STOPPED)
+            rocket.restore(rocket.getX(), rocket.getY(), rocket.getAngle(), rocket.getSpeed(), RocketState.TAKEOFF,
+                    false, rocket.getScore());
+        if (rotation != 0)
+            rocket.rotate(rotation);
+
+        rocket.update();
+        EntityStore<Moon> copy = moons.getCopy();
+        int landed = rocket.isGrounded() ? -1 : copy.firstCollision(rocket, moonGrid);
+        if (landed >= 0) { // the server's rocket moves onto the moon's position in the same tick
+            float prevX = rocket.getPrevX(), prevY = rocket.getPrevY();
+            rocket.restore(copy.x[landed], copy.y[landed], rocket.getAngle(), 0, RocketState.STOPPED, false,
+                    rocket.getScore());
+            rocket.setPrevious(prevX, prevY);
+        }
+    }
+
+    // apply a STATE (see RaceServer)
+    private synchronized void apply(ByteBuffer in) {
+        bytesRead += in.limit() + 4;
+        states++;
+        tick = Wire.getVarint(in);
+        byte flags = in.get();
+        level = (int)Wire.getVarint(in);
+        status = in.get();
+        boolean reset = (flags & RaceServer.RESET) != 0;
+        if (reset) // input for the last level is never going to be applied
+            firstPending = nextInput;
+
+        int racers = in.get();
+        for (int r = 0; r < racers; r++) {
+            long applied = Wire.getVarint(in); // inputs applied so far
+            float x = in.getFloat(), y = in.getFloat(), angle = in.getFloat(), speed = in.getFloat();
+            byte state = in.get();
+            long score = Wire.getVarint(in);
+            Rocket rocket = rockets[r];
+
+            if (r == racer && !reset) {
+                reconcile(rocket, applied, x, y, angle, speed, RocketState.values()[state & 3], (state & 4) != 0, score);
+            } else {
+                rocket.restore(x, y, angle, speed, RocketState.values()[state & 3], (state & 4) != 0, score);
+                if (reset)
+                    rocket.setPrevious(x, y);
+            }
+        }
+
+        if ((flags & RaceServer.EXACT) != 0) {
+            moons.readAll(in);
+            asteroids.readAll(in);
+        } else {
+            if (reset) {
+                moons.clear();
+                asteroids.clear();
+            }
+            moons.read(in);
+            asteroids.read(in);
+        }
+        moonGrid.update(moons.getCopy());
+        stateTime = System.nanoTime();
+    }
+
+    // put our rocket where the server has it, then play the inputs it hasn't applied yet on top
+    private void reconcile(Rocket rocket, long applied, float x, float y, float angle, float speed, RocketState state,
+                           boolean crashed, long score) {
+        float predictedX = rocket.getX(), predictedY = rocket.getY();
+        float prevX = rocket.getPrevX(), prevY = rocket.getPrevY();
+
+        firstPending = Math.max(firstPending, applied);
+        rocket.restore(x, y, angle, speed, state, crashed, score);
+        for (long seq = firstPending; seq < nextInput && !crashed; seq++)
+            predict(rocket, pendingRotation[(int)(seq%MAX_PENDING)], pendingTakeoff[(int)(seq%MAX_PENDING)]);
+        rocket.setPrevious(prevX, prevY); // keep drawing from where it was
+
+        float dx = Math.abs(rocket.getX() - predictedX), dy = Math.abs(rocket.getY() - predictedY);
+        if (!crashed && dx < Game.WIDTH/2 && dy < Game.HEIGHT/2) // crashed rockets aren't drawn, wrapped ones jump anyway
+            maxCorrection = Math.max(maxCorrection, Math.max(dx, dy));
+    }
+
+    // furthest any moon or asteroid copy is from the real one in game, -1 if any are missing.
+    // only meaningful once every state the server sent for game's current tick has been applied
+    public synchronized float mirrorError(Game game) {
+        float moonError = moons.error(game.getMoons());
+        float asteroidError = asteroids.error(game.getAsteroids());
+        return moonError < 0 || asteroidError < 0 ? -1 : Math.max(moonError, asteroidError);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        render((Graphics2D)g);
+    }
+
+    // draw the race, in between the last two states
+    public synchronized void render(Graphics2D g2) {
+        if (hud == null)
+            hud = new Hud(Game.WIDTH, Game.HEIGHT);
+        long now = System.nanoTime();
+        float alpha = Math.min(1, (now - stateTime)/(float)tickNanos);
+        float ownAlpha = Math.min(1, (now - predictTime)/(float)tickNanos);
+
+        g2.drawImage(Assets.get().background, 0, 0, null);
+        hud.renderTitle(g2);
+        camera.frame(alpha);
+
+        EntityStore<Asteroid> asteroidCopy = asteroids.getCopy();
+        for (int i = 0; i < asteroidCopy.size(); i++) // asteroids rendered behind moons
+            asteroidCopy.get(i).render(g2, alpha, camera);
+
+        EntityStore<Moon> moonCopy = moons.getCopy();
+        for (int i = 0; i < moonCopy.size(); i++)
+            moonCopy.get(i).render(g2, alpha, camera);
+
+        for (int r = 0; r < rockets.length; r++) {
+            if (!rockets[r].isCrashed())
+                rockets[r].render(g2, r == racer ? ownAlpha : alpha, camera);
+        }
+
+        if (status != RaceServer.RUNNING)
+            hud.renderMessage(g2, status == RaceServer.WON);
+        hud.renderStatus(g2, level, rockets[racer].getScore());
+    }
+}
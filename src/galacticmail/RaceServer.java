@@ -0,0 +1,396 @@
+package galacticmail;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Runs a delivery race: one Game, with a rocket for each player, simulated here and shown by a RaceClient per player.
+ * Everything happens on one thread: a non-blocking NIO selector loop that accepts players, reads their input,
+ * ticks the game at the tick rate and writes the new state to every player. Nothing waits on a slow player.
+ * The race starts when every racer has joined. A player who leaves crashes their rocket, and someone else can take
+ * their place, starting from a full copy of the game.
+ *
+ * Each tick a client sends one INPUT (how far to turn and whether to take off, applied to its rocket like
+ * the keyboard is applied to the player's) and the server sends one STATE:
+ *   varint tick, byte flags (RESET: a level started, drop everything; EXACT: the entities are a full copy),
+ *   varint level, byte status (RUNNING, WON, LOST),
+ *   byte racers, then for each: varint last input applied + 1, float x, y, angle, speed, byte state | crashed << 2,
+ *   varint score,
+ *   then the moons and the asteroids as EntitySync updates.
+ * Rockets are sent whole (there are only a few), moons and asteroids as deltas, see EntitySync.
+ * The STATE is written once a tick and the same bytes are queued for every player. A player whose queue grows past
+ * MAX_BACKLOG has it thrown away and gets an EXACT state next instead.
+ */
+public class RaceServer {
+    static final byte RESET = 1;
+    static final byte EXACT = 2;
+    static final byte RUNNING = 0;
+    static final byte WON = 1;
+    static final byte LOST = 2;
+
+    private static final int MAX_BACKLOG = 1 << 20; // bytes
+    private static final int MAX_INPUTS = 8;        // queued per player, older ones are dropped
+    private static final int FINISH_SECONDS = 3; // win/lose screen before the next level
+
+    private final Game game;
+    private final int ticksPerSecond;
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final Player[] players; // by racer, null while nobody is flying it
+    private final EntitySync<Moon> moonSync;
+    private final EntitySync<Asteroid> asteroidSync;
+    private ByteBuffer state = ByteBuffer.allocate(64*1024);    // this tick's STATE
+    private ByteBuffer exact = ByteBuffer.allocate(64*1024);    // and the EXACT version, when someone needs it
+    private boolean started = false;
+    private boolean levelStarted = true; // the next STATE starts a level
+    private int finishedTicks = 0;
+    private long tick = 0;
+    private volatile boolean stopped = false;
+    private Thread thread;
+
+    // stats
+    private long bytesWritten = 0; // STATE bytes, once per tick (not per player)
+    private long writeNanos = 0;   // time spent building STATEs
+
+    /**
+     * A connected player, flying one of the rockets.
+     */
+    private static final class Player {
+        final SocketChannel channel;
+        final int racer;
+        ByteBuffer in = ByteBuffer.allocate(256);
+        ByteBuffer out = ByteBuffer.allocate(64*1024);
+        boolean needsExact = true;
+        long lastInput = -1;                       // sequence number of the last input applied
+        final long[] inputSeq = new long[MAX_INPUTS]; // queued inputs, oldest at head
+        final float[] inputRotation = new float[MAX_INPUTS];
+        final boolean[] inputTakeoff = new boolean[MAX_INPUTS];
+        int inputHead = 0;
+        int inputCount = 0;
+
+        Player(SocketChannel channel, int racer) {
+            this.channel = channel;
+            this.racer = racer;
+        }
+    }
+
+    // a race between racers rockets, on the given port (0 for any free one) of the given address
+    public RaceServer(String host, int port, int racers, long seed, int ticksPerSecond) throws IOException {
+        this.ticksPerSecond = ticksPerSecond;
+        this.game = new Game(1, 0, new Random(seed), null);
+        game.setTicksPerSecond(ticksPerSecond);
+        for (int r = 1; r < racers; r++)
+            game.addRacer();
+        this.players = new Player[racers];
+
+        EntityStore<Moon> moonShadow = new EntityStore<>(16);
+        EntityStore<Asteroid> asteroidShadow = new EntityStore<>(64);
+        this.moonSync = new EntitySync<>(true, moonShadow);
+        this.asteroidSync = new EntitySync<>(false, asteroidShadow);
+
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(host, port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int getPort() { return server.socket().getLocalPort(); }
+    public Game getGame() { return game; }
+    public long getTick() { return tick; }
+    public long getBytesWritten() { return bytesWritten; }
+    public long getWriteNanos() { return writeNanos; }
+
+    public synchronized int getPlayers() {
+        int n = 0;
+        for (Player p : players)
+            n += p != null ? 1 : 0;
+        return n;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "race-server");
+        thread.start();
+    }
+
+    public void stop() throws InterruptedException {
+        stopped = true;
+        selector.wakeup();
+        thread.join();
+    }
+
+    private void run() {
+        long tickNanos = 1_000_000_000L/ticksPerSecond;
+        long next = System.nanoTime() + tickNanos;
+        try {
+            while (!stopped) {
+                long wait = next - System.nanoTime();
+                if (wait > 0)
+                    selector.select(Math.max(1, wait/1_000_000));
+                else
+                    selector.selectNow();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable())
+                        accept();
+                    else
+                        service(key);
+                }
+
+                if (System.nanoTime() - next >= 0) {
+                    tick();
+                    next += tickNanos;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("*** race server stopped: " + e.getMessage() + " ***");
+        } finally {
+            try {
+                selector.close();
+                server.close();
+            } catch (IOException e) {
+            }
+            for (Player p : players) { // send what is still queued, then hang up
+                if (p != null)
+                    close(p);
+            }
+        }
+    }
+
+    private static void close(Player p) {
+        try {
+            p.channel.configureBlocking(true);
+            p.out.flip();
+            while (p.out.hasRemaining())
+                p.channel.write(p.out);
+            p.channel.shutdownOutput();
+        } catch (IOException e) {
+        }
+        try {
+            p.channel.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+
+        int racer = -1;
+        synchronized (this) {
+            for (int r = 0; r < players.length && racer < 0; r++) {
+                if (players[r] == null)
+                    racer = r;
+            }
+            if (racer < 0) { // race is full
+                channel.close();
+                return;
+            }
+            players[racer] = new Player(channel, racer);
+        }
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Player player = players[racer];
+        int start = Wire.begin(player.out, Wire.WELCOME);
+        player.out.put((byte)racer).put((byte)players.length).putInt(Game.WIDTH).putInt(Game.HEIGHT);
+        Wire.putVarint(player.out, ticksPerSecond);
+        Wire.end(player.out, start);
+        channel.register(selector, SelectionKey.OP_READ, player); // flying from the next level, if the race is on
+        flush(player);
+    }
+
+    // read a player's input, and write out what is queued for them if the socket has room again
+    private void service(SelectionKey key) {
+        Player player = (Player)key.attachment();
+        try {
+            if (key.isReadable()) {
+                if (player.channel.read(player.in) < 0)
+                    throw new IOException("closed");
+                readInputs(player);
+            }
+            if (key.isValid() && key.isWritable())
+                flush(player);
+        } catch (IOException e) {
+            drop(player);
+        }
+    }
+
+    private void readInputs(Player player) throws IOException {
+        ByteBuffer in = player.in;
+        in.flip();
+        while (in.remaining() >= 4) {
+            int length = in.getInt(in.position());
+            if (length <= 0 || length > 64)
+                throw new IOException("bad input");
+            if (in.remaining() < 4 + length)
+                break;
+
+            int end = in.position() + 4 + length;
+            in.position(in.position() + 4);
+            if (in.get() == Wire.INPUT) {
+                long seq = Wire.getVarint(in);
+                float rotation = Wire.getSigned(in)/Wire.ROTATION_SCALE;
+                boolean takeoff = in.get() != 0;
+                queueInput(player, seq, rotation, takeoff);
+            }
+            in.position(end);
+        }
+        in.compact();
+    }
+
+    private static void queueInput(Player p, long seq, float rotation, boolean takeoff) {
+        if (p.inputCount == MAX_INPUTS) { // the client is running ahead, drop the oldest
+            p.inputHead = (p.inputHead + 1) % MAX_INPUTS;
+            p.inputCount--;
+        }
+        int k = (p.inputHead + p.inputCount++) % MAX_INPUTS;
+        p.inputSeq[k] = seq;
+        p.inputRotation[k] = rotation;
+        p.inputTakeoff[k] = takeoff;
+    }
+
+    private void drop(Player player) {
+        synchronized (this) {
+            players[player.racer] = null;
+        }
+        game.getRacer(player.racer).crash();
+        try {
+            player.channel.close();
+        } catch (IOException e) {
+        }
+    }
+
+    private void tick() {
+        if (!started) {
+            if (getPlayers() < players.length)
+                return; // still waiting for everyone
+            started = true;
+        }
+        tick++;
+
+        if (game.isRunning()) {
+            for (Player p : players) { // one input per player per tick, like a key press on the player's tick
+                if (p == null || p.inputCount == 0)
+                    continue;
+
+                Rocket rocket = game.getRacer(p.racer);
+                int k = p.inputHead;
+                if (p.inputTakeoff[k])
+                    rocket.takeoff();
+                if (p.inputRotation[k] != 0)
+                    rocket.rotate(p.inputRotation[k]);
+                p.lastInput = p.inputSeq[k];
+                p.inputHead = (k + 1) % MAX_INPUTS;
+                p.inputCount--;
+            }
+            game.update();
+        } else if (++finishedTicks >= FINISH_SECONDS*ticksPerSecond) {
+            finishedTicks = 0;
+            boolean win = game.isWin();
+            game.reset(win ? game.getLevel() + 1 : 1, win ? (int)game.getPlayer().getScore() : 0);
+            levelStarted = true;
+            for (Player p : players) { // input sent for the last level is stale
+                if (p != null)
+                    p.inputCount = 0;
+            }
+        }
+
+        long start = System.nanoTime();
+        if (levelStarted) {
+            moonSync.clear();
+            asteroidSync.clear();
+        }
+        state.clear();
+        int frame = writeHeader(state, levelStarted ? RESET : 0);
+        state = Wire.ensure(state, 16 + 48*(game.getMoons().size() + moonSync.getCopy().size()));
+        moonSync.write(state, game.getMoons());
+        state = Wire.ensure(state, 16 + 48*(game.getAsteroids().size() + asteroidSync.getCopy().size()));
+        asteroidSync.write(state, game.getAsteroids());
+        Wire.end(state, frame);
+        state.flip();
+        bytesWritten += state.remaining();
+        writeNanos += System.nanoTime() - start;
+        levelStarted = false;
+
+        exact.clear();
+        for (Player p : players) {
+            if (p == null)
+                continue;
+
+            ByteBuffer send = state;
+            if (p.needsExact) {
+                if (exact.position() == 0)
+                    writeExact();
+                send = exact;
+                p.needsExact = false;
+            }
+            queue(p, send.duplicate());
+        }
+    }
+
+    private void writeExact() {
+        int frame = writeHeader(exact, (byte)(RESET | EXACT));
+        exact = Wire.ensure(exact, 16 + 48*(moonSync.getCopy().size() + asteroidSync.getCopy().size()));
+        moonSync.writeAll(exact, game.getMoons());
+        asteroidSync.writeAll(exact, game.getAsteroids());
+        Wire.end(exact, frame);
+        exact.flip();
+    }
+
+    private int writeHeader(ByteBuffer out, byte flags) {
+        int frame = Wire.begin(out, Wire.STATE);
+        Wire.putVarint(out, tick);
+        out.put(flags);
+        Wire.putVarint(out, game.getLevel());
+        out.put(game.isRunning() ? RUNNING : game.isWin() ? WON : LOST);
+        out.put((byte)players.length);
+        for (int r = 0; r < players.length; r++) {
+            Rocket rocket = game.getRacer(r);
+            Wire.putVarint(out, players[r] != null ? players[r].lastInput + 1 : 0);
+            out.putFloat(rocket.getX()).putFloat(rocket.getY()).putFloat(rocket.getAngle()).putFloat(rocket.getSpeed());
+            out.put((byte)(rocket.getState().ordinal() | (rocket.isCrashed() ? 4 : 0)));
+            Wire.putVarint(out, rocket.getScore());
+        }
+        return frame;
+    }
+
+    // append a frame to what's waiting to go to a player, and send as much as the socket takes
+    private void queue(Player p, ByteBuffer frame) {
+        if (p.out.position() + frame.remaining() > MAX_BACKLOG) { // too far behind, start them over
+            p.out.clear();
+            p.needsExact = true;
+            return;
+        }
+        p.out = Wire.ensure(p.out, frame.remaining());
+        p.out.put(frame);
+        try {
+            flush(p);
+        } catch (IOException e) {
+            drop(p);
+        }
+    }
+
+    private void flush(Player p) throws IOException {
+        p.out.flip();
+        p.channel.write(p.out);
+        p.out.compact();
+        SelectionKey key = p.channel.keyFor(selector);
+        if (key != null && key.isValid()) // only ask to hear about room in the socket while something is waiting
+            key.interestOps(p.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+}
@@ -0,0 +1,219 @@
+package galacticmail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Recorded sessions: the seed plus every input event the simulation consumed, and on which tick.
+ * Since everything else in Game.update is deterministic, replaying the events against a game created from
+ * the same seed plays the session out exactly the same way, state hash and all.
+ *
+ * File format (big endian):
+ *   int magic ("GMRP"), short version, short flags (FLAG_TRIG_TABLE, FLAG_TICK_RATE, FLAG_WAVES, FLAG_WORLD), long seed
+ *   [int world width, int world height, if FLAG_WORLD]
+ *   [int ticks per second, if FLAG_TICK_RATE, otherwise Game.TICKS_PER_SECOND]
+ *   then one record per event: varint ticks since the previous record, byte event (see InputQueue)
+ *   and a last record with event END, on the final tick of the session.
+ * Ticks count every Game.update() of the session, across levels.
+ */
+public final class Replay {
+    private static final int MAGIC = 0x474d5250;
+    private static final short VERSION = 1;
+    private static final short FLAG_TRIG_TABLE = 1; // recorded with Game.setTrigTable(true)
+    private static final short FLAG_TICK_RATE = 2;  // recorded at a tick rate other than Game.TICKS_PER_SECOND
+    private static final short FLAG_WAVES = 4;      // recorded with Game.setHazardWaves(true)
+    private static final short FLAG_WORLD = 8;      // recorded in a world bigger than the screen
+    private static final int END = 0xff;
+
+    private Replay() { }
+
+    /**
+     * Writes a replay file as the game is played, through a direct buffer that is flushed to the channel when full.
+     * If writing fails the recording stops with a message, the game carries on.
+     */
+    public static final class Recorder {
+        private final Path file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(64*1024);
+        private long tick = 0;
+        private long lastTick = 0; // tick of the last record written
+        private boolean failed = false;
+
+        // record a game started from seed, along with its settings
+        public Recorder(Path file, long seed, Game game) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC);
+            buffer.putShort(VERSION);
+            World world = game.getWorld();
+            int ticksPerSecond = game.getTicksPerSecond();
+            boolean tickRate = ticksPerSecond != Game.TICKS_PER_SECOND;
+            buffer.putShort((short)((game.isTrigTable() ? FLAG_TRIG_TABLE : 0) | (tickRate ? FLAG_TICK_RATE : 0)
+                    | (game.isHazardWaves() ? FLAG_WAVES : 0) | (world != null ? FLAG_WORLD : 0)));
+            buffer.putLong(seed);
+            if (world != null) {
+                buffer.putInt(world.getWidth());
+                buffer.putInt(world.getHeight());
+            }
+            if (tickRate)
+                buffer.putInt(ticksPerSecond);
+        }
+
+        // called at the start of every tick
+        public void tick() { tick++; }
+
+        // an event consumed during the current tick
+        public void record(int event) { write(event); }
+
+        // end the recording on the current tick
+        public void close() {
+            write(END);
+            try {
+                flush();
+                channel.close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void write(int event) {
+            if (failed)
+                return;
+
+            try {
+                if (buffer.remaining() < 11)
+                    flush();
+
+                long delta = tick - lastTick;
+                while ((delta & ~0x7fL) != 0) {
+                    buffer.put((byte)(delta & 0x7f | 0x80));
+                    delta >>>= 7;
+                }
+                buffer.put((byte)delta);
+                buffer.put((byte)event);
+                lastTick = tick;
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+
+        private void fail(IOException e) {
+            failed = true;
+            System.err.println("*** could not write replay " + file + ": " + e.getMessage() + " ***");
+        }
+    }
+
+    /**
+     * Feeds a recorded session back to a game (see Game.play), tick by tick.
+     */
+    public static final class Reader {
+        private final ByteBuffer data;
+        private final long seed;
+        private final boolean trigTable;
+        private final boolean hazardWaves;
+        private final int worldWidth;
+        private final int worldHeight;
+        private final int ticksPerSecond;
+        private long tick = 0;
+        private long nextTick; // tick of the next record
+        private int nextEvent;
+
+        private Reader(ByteBuffer data) throws IOException {
+            this.data = data;
+            if (data.remaining() < 16 || data.getInt() != MAGIC)
+                throw new IOException("not a replay file");
+            if (data.getShort() != VERSION)
+                throw new IOException("unsupported replay version");
+            short flags = data.getShort();
+            this.trigTable = (flags & FLAG_TRIG_TABLE) != 0;
+            this.hazardWaves = (flags & FLAG_WAVES) != 0;
+            this.seed = data.getLong();
+            if ((flags & FLAG_WORLD) != 0) {
+                if (data.remaining() < 8)
+                    throw new IOException("not a replay file");
+                this.worldWidth = data.getInt();
+                this.worldHeight = data.getInt();
+            } else {
+                this.worldWidth = Game.WIDTH;
+                this.worldHeight = Game.HEIGHT;
+            }
+            if ((flags & FLAG_TICK_RATE) != 0) {
+                if (data.remaining() < 4)
+                    throw new IOException("not a replay file");
+                this.ticksPerSecond = data.getInt();
+            } else {
+                this.ticksPerSecond = Game.TICKS_PER_SECOND;
+            }
+            readRecord();
+        }
+
+        public static Reader open(Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer data = ByteBuffer.allocate((int)channel.size());
+                while (data.hasRemaining() && channel.read(data) >= 0) { }
+                data.flip();
+                return new Reader(data);
+            }
+        }
+
+        public long getSeed() { return seed; }
+        public boolean isTrigTable() { return trigTable; }
+        public boolean isHazardWaves() { return hazardWaves; }
+        public int getWorldWidth() { return worldWidth; }
+        public int getWorldHeight() { return worldHeight; }
+        public int getTicksPerSecond() { return ticksPerSecond; }
+        public long getTicks() { return tick; }
+
+        // true once every recorded tick has been played
+        public boolean isFinished() { return nextEvent == END && tick >= nextTick; }
+
+        // move on to the next tick, returns false if the recording is over
+        public boolean tick() {
+            if (isFinished())
+                return false;
+
+            tick++;
+            return true;
+        }
+
+        // the next event recorded on the current tick, or InputQueue.EMPTY if there are no more
+        public int poll() {
+            if (nextEvent == END || nextTick != tick)
+                return InputQueue.EMPTY;
+
+            int event = nextEvent;
+            readRecord();
+            return event;
+        }
+
+        private void readRecord() {
+            if (!data.hasRemaining()) { // truncated, e.g. the game was killed: stop after the last event
+                nextEvent = END;
+                return;
+            }
+
+            long delta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data.get();
+                delta |= (long)(b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0 && data.hasRemaining());
+
+            nextTick += delta;
+            nextEvent = data.hasRemaining() ? data.get() & 0xff : END;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package galacticmail;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * The player class. A controllable rocket required to make contact with all the moons.
+ * A lower score means you're too slow in making contacts with the moons.
+ */
+public class Rocket implements Collideable {
+    private static final float MAX_SPEED = 8.0f; // change this to slow down or speed up rocket
+    private static final float ACCEL = 0.4f; // change this to change the rate the rocket speeds up at
+
+    private boolean debug = false;
+    private float x = 0;
+    private float y = 0;
+    private float prevX = 0; // position at the start of the tick, for interpolated rendering
+    private float prevY = 0;
+    private float worldWidth = Game.WIDTH; // where the rocket wraps around
+    private float worldHeight = Game.HEIGHT;
+    private float dx = 0; // distance moved in the last update, see Collideable.getDX
+    private float dy = 0;
+    private float angle = 0;
+    private double headingX = 1; // unit vector pointing along angle, only recomputed when the angle changes
+    private double headingY = 0;
+    private int rotation = 0;    // TextureCache rotation for angle
+    private boolean trigTable = false; // headings from the Trig table instead of Math
+    private int ticksPerSecond = Game.TICKS_PER_SECOND; // the game's tick rate, landings score by seconds taken
+    private float speed = 0;
+    private long score = 0;
+    private long ticks = 0; // simulation ticks lived, used as the clock so scores are deterministic
+    private long lastDeliveryTick = 0;
+    private int[] landings = new int[16]; // ticks between landings this level, for the ScoreLog
+    private int landingCount = 0;
+    private RocketState state = RocketState.STOPPED;
+    private boolean crashed = false; // hit an asteroid, out until the next level
+    private EntityStore<Moon> moons;  // store of the moon we're on, if any
+    private long moon = EntityStore.NONE; // handle of the moon we're on (see EntityStore.handle)
+    private BufferedImage takeoffTexture;
+    private BufferedImage rocketTexture;
+    private BufferedImage[] takeoffFrames = new BufferedImage[TextureCache.ROTATIONS]; // rotated sprites, filled in as needed
+    private BufferedImage[] rocketFrames = new BufferedImage[TextureCache.ROTATIONS];
+    private int[] takeoffRegions = newRegions(); // SpriteAtlas regions of the frames, -1 until first drawn by a SpriteBatch
+    private int[] rocketRegions = newRegions();
+
+    public Rocket(BufferedImage takeoffTexture, BufferedImage rocketTexture) {
+        this.takeoffTexture = TextureCache.get(takeoffTexture);
+        this.rocketTexture = TextureCache.get(rocketTexture);
+    }
+
+    public Rocket(BufferedImage takeoffTexture, BufferedImage rocketTexture, int score) {
+        this(takeoffTexture, rocketTexture);
+        this.score = score;
+    }
+
+    // start over for a new level, keeping the textures and rotated frames
+    public void reset(int score) {
+        this.score = score;
+        this.debug = false;
+        this.ticks = 0;
+        this.lastDeliveryTick = 0;
+        this.landingCount = 0;
+        this.crashed = false;
+        this.state = RocketState.STOPPED;
+        this.moons = null;
+        this.moon = EntityStore.NONE;
+        this.speed = 0;
+        setAngle(0);
+    }
+
+    public float getX() { return x; }
+    public float getY() { return y; }
+    public float getPrevX() { return prevX; }
+    public float getPrevY() { return prevY; }
+    public float getVX() { return speed*(float)headingX; }
+    public float getVY() { return speed*(float)headingY; }
+    public float getDX() { return dx; }
+    public float getDY() { return dy; }
+    public float getWidth() { BufferedImage texture = state == RocketState.TAKEOFF ? takeoffTexture : rocketTexture; return (float)texture.getWidth(); }
+    public float getHeight() { BufferedImage texture = state == RocketState.TAKEOFF ? takeoffTexture : rocketTexture; return (float)texture.getHeight(); }
+    public long getScore() { return score; }
+    public int getLandingCount() { return landingCount; }
+    public int getLanding(int k) { return landings[k]; }
+
+    public float getAngle() { return angle; }
+    public float getSpeed() { return speed; }
+    public RocketState getState() { return state; }
+    public boolean isTrigTable() { return trigTable; }
+    public int getTicksPerSecond() { return ticksPerSecond; }
+    public boolean isCrashed() { return crashed; }
+
+    public void crash() { crashed = true; }
+
+    public void toggleDebug() { debug = !debug; }
+
+    // compute headings with the Trig table (see Game.setTrigTable)
+    public void setTrigTable(boolean trigTable) { this.trigTable = trigTable; setAngle(angle); }
+
+    // how many ticks make a second (see Game.setTicksPerSecond)
+    public void setTicksPerSecond(int ticksPerSecond) { this.ticksPerSecond = ticksPerSecond; }
+
+    // wrap around a world of this size instead of the screen
+    public void setWorldSize(float width, float height) { worldWidth = width; worldHeight = height; }
+
+    // returns true if the rocket is stopped (on the moon or just starting)
+    public boolean isGrounded() { return state != RocketState.TRAVELLING; }
+
+    public void teleport(float x, float y) { this.x = x; this.y = y; }
+    public void bounce() { }
+
+    // place the rocket without interpolating from its old position
+    public void spawn(float x, float y) { teleport(x, y); prevX = x; prevY = y; dx = 0; dy = 0; }
+
+    public void takeoff() {
+        // can only take off if stopped!
+        if (state == RocketState.STOPPED) {
+            Audio.play("Launch.mp3");
+            int slot = moons != null ? moons.slotOf(moon) : -1;
+
+            this.state = RocketState.TAKEOFF;
+            this.moon = EntityStore.NONE;
+
+            if (slot >= 0)
+                moons.get(slot).destroy(); // if we leave a moon, remove it
+        }
+    }
+
+    // land on the moon in the given slot of moons
+    public void land(EntityStore<Moon> moons, int slot) {
+        long duration = ticks - lastDeliveryTick; // time (in ticks) since last time we landed
+
+        this.moons = moons;
+        this.moon = moons.handle(slot);
+        this.x = moons.x[slot]; // onto the moon straight away, update() keeps it there from now on
+        this.y = moons.y[slot];
+        this.speed = 0;
+        this.lastDeliveryTick = ticks;
+        this.state = RocketState.STOPPED;
+        if (landingCount == landings.length)
+            landings = Arrays.copyOf(landings, landingCount*2);
+        landings[landingCount++] = (int)duration;
+
+        // 0 seconds -> 10 seconds
+        // 50000 score -> 0 score
+        float secs = duration/(float)ticksPerSecond;
+
+        // add to score linearly based on how long it took to land
+        this.score += Math.max(0, 50000 - (int)(50000*secs/10));
+    }
+
+    public void rotate(float angle) {
+        if (state == RocketState.STOPPED || debug)
+            setAngle(this.angle + angle);
+        else
+            setAngle(this.angle + angle*(1.1f - speed/MAX_SPEED)); // if they're moving, rotate more slowly based on their speed
+    }
+
+    public void setVelocity(float vx, float vy) {
+        speed = (float)Math.sqrt(vx*vx + vy*vy);
+        angle = (float)Math.toDegrees(Math.atan2(vy, vx));
+        rotation = TextureCache.rotation(Math.toRadians(angle));
+        if (speed > 0) { // the direction is already known, no need to go back through the angle
+            headingX = vx/speed;
+            headingY = vy/speed;
+        }
+    }
+
+    private void setAngle(float angle) {
+        this.angle = angle;
+        headingX = Trig.cos(angle, trigTable);
+        headingY = Trig.sin(angle, trigTable);
+        rotation = TextureCache.rotation(Math.toRadians(angle));
+    }
+
+    public void update() {
+        ticks++;
+        prevX = x;
+        prevY = y;
+
+        if (state == RocketState.STOPPED) {
+            int slot = moons != null ? moons.slotOf(moon) : -1;
+            if (slot >= 0) { // if stopped on moon, update position to stay on moon (because moons move)
+                x = moons.x[slot];
+                y = moons.y[slot];
+            }
+            dx = 0;
+            dy = 0;
+            return;
+        }
+
+        if (state == RocketState.TAKEOFF) {
+            speed += ACCEL; // speedup
+
+            if (speed >= MAX_SPEED) {
+                speed = MAX_SPEED;
+                state = RocketState.TRAVELLING;
+            }
+        }
+
+        dx = (int)(speed * headingX);
+        dy = (int)(speed * headingY);
+        x += dx;
+        y += dy;
+
+        Collideable.wrap(this, worldWidth, worldHeight); // check if rocket went off the world and move to other side
+    }
+
+    // take on the state of a rocket simulated elsewhere (see RaceClient), moving on from where it was last tick
+    void restore(float x, float y, float angle, float speed, RocketState state, boolean crashed, long score) {
+        prevX = this.x;
+        prevY = this.y;
+        this.x = x;
+        this.y = y;
+        this.speed = speed;
+        this.state = state;
+        this.crashed = crashed;
+        this.score = score;
+        if (angle != this.angle)
+            setAngle(angle);
+    }
+
+    // where render() interpolates from, e.g. to keep drawing smoothly after restore() and replaying input on top
+    void setPrevious(float x, float y) { prevX = x; prevY = y; }
+
+    // mix the rocket's state into a hash (see Game.stateHash)
+    public long hash(long h) {
+        h = Game.hash(h, Float.floatToIntBits(x));
+        h = Game.hash(h, Float.floatToIntBits(y));
+        h = Game.hash(h, Float.floatToIntBits(angle));
+        h = Game.hash(h, Float.floatToIntBits(speed));
+        h = Game.hash(h, score);
+        return Game.hash(h, state.ordinal());
+    }
+
+    // renders the rocket onto the screen
+    public void render(Graphics2D g, float alpha, Camera camera) {
+        float rx = camera.screenX(prevX, x, alpha);
+        float ry = camera.screenY(prevY, y, alpha);
+        int offset = spriteOffset();
+
+        g.drawImage(frame(), (int)rx + offset, (int)ry + offset, null);
+    }
+
+    // the rotated sprite for the current state and angle
+    private BufferedImage frame() {
+        boolean takeoff = state == RocketState.TAKEOFF;
+        BufferedImage[] frames = takeoff ? takeoffFrames : rocketFrames;
+
+        if (frames[rotation] == null)
+            frames[rotation] = TextureCache.rotated(takeoff ? takeoffTexture : rocketTexture, rotation);
+        return frames[rotation];
+    }
+
+    // where the current frame is in the SpriteAtlas (see SpriteBatch)
+    int region() {
+        int[] regions = state == RocketState.TAKEOFF ? takeoffRegions : rocketRegions;
+        if (regions[rotation] < 0)
+            regions[rotation] = SpriteAtlas.region(frame());
+        return regions[rotation];
+    }
+
+    // how far the frame is drawn from the rocket's position, to keep it centered on the texture
+    int spriteOffset() {
+        BufferedImage texture = state == RocketState.TAKEOFF ? takeoffTexture : rocketTexture;
+        return (texture.getWidth() - TextureCache.rotatedSize(texture))/2;
+    }
+
+    private static int[] newRegions() {
+        int[] regions = new int[TextureCache.ROTATIONS];
+        Arrays.fill(regions, -1);
+        return regions;
+    }
+
+    // the area render() draws to
+    public void bounds(float alpha, Camera camera, Rectangle r) {
+        BufferedImage texture = state == RocketState.TAKEOFF ? takeoffTexture : rocketTexture;
+        float rx = camera.screenX(prevX, x, alpha);
+        float ry = camera.screenY(prevY, y, alpha);
+        int size = TextureCache.rotatedSize(texture);
+        int offset = (texture.getWidth() - size)/2;
+
+        r.setBounds((int)rx + offset, (int)ry + offset, size, size);
+    }
+}
@@ -1,3 +1,5 @@
+package galacticmail;
+
 /**
  * Define the state of the rocket.
  */
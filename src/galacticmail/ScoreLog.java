@@ -0,0 +1,360 @@
+package galacticmail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * High scores and run statistics, kept across sessions in an append-only log file.
+ * Every finished run (level 1 until a level is lost) is appended as a record. The file is memory-mapped and
+ * written by a background thread, so submit() never blocks the game: if the queue is full the run is dropped.
+ *
+ * Record format (big endian): int length, length bytes of payload, int CRC32C of the payload.
+ *   RUN payload:     byte RUN, long time (epoch millis), int level reached, long score,
+ *                    int landings, then the ticks between each landing and the previous one (see Rocket.land)
+ *   SUMMARY payload: byte SUMMARY, long runs, long total score, long landings, long landing ticks, int best level
+ * The payload and checksum are written before the length, and the file past the last record is zeros, so a record
+ * torn by a crash reads as either the end of the log or a checksum mismatch. Loading stops at the first such record.
+ *
+ * Opening the log reads every record into an in-memory index (the best runs, plus totals for the rest), then
+ * compacts the file down to one SUMMARY of the runs that didn't make the index and a RUN for each one that did.
+ * So however many runs were appended last session, the next startup only reads a few hundred records.
+ */
+public final class ScoreLog {
+    private static final byte RUN = 1;
+    private static final byte SUMMARY = 2;
+    private static final int MIN_MAPPING = 1 << 20;
+    private static final int MAX_RECORD = 1 << 20; // anything longer is garbage
+
+    private final Path file;
+    private final int keep; // runs kept in the index
+    private final BlockingQueue<Run> queue = new ArrayBlockingQueue<>(256);
+    private final Thread writer;
+    private final CRC32C crc = new CRC32C(); // writer thread only
+
+    private FileChannel channel;
+    private MappedByteBuffer map;
+    private int end; // where the next record goes
+
+    // the index, guarded by this
+    private final Run[] best; // best runs, highest score first
+    private int bestCount = 0;
+    private long runs = 0;
+    private long totalScore = 0;
+    private long landings = 0;
+    private long landingTicks = 0;
+    private int bestLevel = 0;
+    private int dropped = 0; // runs not recorded because the queue was full or writing failed
+    private boolean failed = false;
+
+    private static final Run CLOSE = new Run(0, 0, 0, new int[0]);
+
+    /**
+     * One recorded run.
+     */
+    public static final class Run {
+        public final long time; // when it ended, epoch millis
+        public final int level; // level reached
+        public final long score;
+        private final int[] landings; // ticks between landings
+
+        Run(long time, int level, long score, int[] landings) {
+            this.time = time;
+            this.level = level;
+            this.score = score;
+            this.landings = landings;
+        }
+
+        public int getLandings() { return landings.length; }
+        public int getLanding(int k) { return landings[k]; }
+    }
+
+    private ScoreLog(Path file, int keep) {
+        this.file = file;
+        this.keep = keep;
+        this.best = new Run[keep];
+        this.writer = new Thread(this::write, "score-log");
+        this.writer.setDaemon(true);
+    }
+
+    // load (and compact) the log in file, creating it if there isn't one, keeping the best keep runs in the index
+    public static ScoreLog open(Path file, int keep) throws IOException {
+        ScoreLog log = new ScoreLog(file, keep);
+        if (Files.exists(file))
+            log.load();
+        log.compact();
+        log.writer.start();
+        return log;
+    }
+
+    // record a finished run, without waiting for it to be written. returns false if it had to be dropped
+    public boolean submit(int level, long score, int[] landings, int count) {
+        Run run = new Run(System.currentTimeMillis(), level, score, Arrays.copyOf(landings, count));
+        if (queue.offer(run))
+            return true;
+
+        synchronized (this) {
+            dropped++;
+        }
+        return false;
+    }
+
+    // write out everything submitted so far and close the file
+    public void close() {
+        try {
+            while (!queue.offer(CLOSE, 100, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive())
+                    return; // the writer stopped on an error (see write), nothing will ever take it
+            }
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // the best n runs (at most the number kept), highest score first
+    public synchronized List<Run> top(int n) {
+        return new ArrayList<>(Arrays.asList(best).subList(0, Math.min(n, bestCount)));
+    }
+
+    public synchronized long getRuns() { return runs; }
+    public synchronized int getBestLevel() { return bestLevel; }
+    public synchronized long getBestScore() { return bestCount > 0 ? best[0].score : 0; }
+    public synchronized int getDropped() { return dropped; }
+
+    public synchronized double getMeanScore() { return runs > 0 ? totalScore/(double)runs : 0; }
+
+    // average time between landings over every recorded run, in seconds
+    public synchronized double getMeanLandingSeconds() {
+        return landings > 0 ? landingTicks/(double)landings/Game.TICKS_PER_SECOND : 0;
+    }
+
+    // read every record, stopping at the end of the log or the first damaged record
+    private void load() throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("score log too big: " + size);
+
+            MappedByteBuffer data = in.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C check = new CRC32C();
+
+            while (data.remaining() >= 8) {
+                int length = data.getInt(data.position());
+                if (length <= 0 || length > MAX_RECORD || length > data.remaining() - 8)
+                    break;
+
+                ByteBuffer payload = data.duplicate();
+                payload.position(data.position() + 4).limit(data.position() + 4 + length);
+                check.reset();
+                check.update(payload.duplicate());
+                if ((int)check.getValue() != data.getInt(data.position() + 4 + length))
+                    break;
+
+                read(payload);
+                data.position(data.position() + length + 8);
+            }
+        }
+    }
+
+    private synchronized void read(ByteBuffer payload) {
+        byte type = payload.get();
+        if (type == RUN) {
+            long time = payload.getLong();
+            int level = payload.getInt();
+            long score = payload.getLong();
+            int count = payload.getInt();
+            if (count < 0 || count > payload.remaining()/4)
+                return;
+
+            long ticks = 0;
+            int start = payload.position();
+            for (int k = 0; k < count; k++)
+                ticks += payload.getInt();
+
+            count(level, score, count, ticks);
+            if (bestCount < keep || score > best[bestCount - 1].score) { // only build a Run for the ones we keep
+                int[] times = new int[count];
+                payload.position(start);
+                payload.asIntBuffer().get(times);
+                index(new Run(time, level, score, times));
+            }
+        } else if (type == SUMMARY) {
+            runs += payload.getLong();
+            totalScore += payload.getLong();
+            landings += payload.getLong();
+            landingTicks += payload.getLong();
+            bestLevel = Math.max(bestLevel, payload.getInt());
+        }
+    }
+
+    private void count(int level, long score, int count, long ticks) {
+        runs++;
+        totalScore += score;
+        landings += count;
+        landingTicks += ticks;
+        bestLevel = Math.max(bestLevel, level);
+    }
+
+    // insert into the best runs, if it is good enough
+    private void index(Run run) {
+        if (bestCount == keep && run.score <= best[bestCount - 1].score)
+            return;
+
+        int at = bestCount < keep ? bestCount++ : bestCount - 1;
+        while (at > 0 && best[at - 1].score < run.score) { // ties stay in the order they were recorded
+            best[at] = best[at - 1];
+            at--;
+        }
+        best[at] = run;
+    }
+
+    // rewrite the log as a summary plus the indexed runs, then map it for appending
+    private synchronized void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long summaryRuns = runs, summaryScore = totalScore, summaryLandings = landings, summaryTicks = landingTicks;
+        for (int k = 0; k < bestCount; k++) { // the summary covers the runs that aren't written out again
+            summaryRuns--;
+            summaryScore -= best[k].score;
+            summaryLandings -= best[k].landings.length;
+            for (int ticks : best[k].landings)
+                summaryTicks -= ticks;
+        }
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64*1024);
+            if (summaryRuns > 0) {
+                begin(buffer);
+                buffer.put(SUMMARY).putLong(summaryRuns).putLong(summaryScore).putLong(summaryLandings)
+                        .putLong(summaryTicks).putInt(bestLevel);
+                finish(buffer, 0, crc);
+            }
+            for (int k = 0; k < bestCount; k++) { // best first, so tied runs load back in the same order
+                Run run = best[k];
+                if (buffer.remaining() < size(run)) {
+                    drain(out, buffer);
+                    if (buffer.capacity() < size(run))
+                        buffer = ByteBuffer.allocate(size(run));
+                }
+                int start = buffer.position();
+                begin(buffer);
+                put(buffer, run);
+                finish(buffer, start, crc);
+            }
+            drain(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        end = (int)channel.size();
+        map(Math.max(MIN_MAPPING, end*2));
+    }
+
+    // the writer thread: append each submitted run, then add it to the index
+    private void write() {
+        try {
+            for (Run run = queue.take(); run != CLOSE; run = queue.take()) {
+                if (!failed)
+                    append(run);
+
+                synchronized (this) {
+                    if (failed) {
+                        dropped++;
+                        continue;
+                    }
+                    count(run.level, run.score, run.landings.length, sum(run.landings));
+                    index(run);
+                }
+            }
+            map.force();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void append(Run run) {
+        try {
+            if (end + size(run) > map.capacity())
+                map(Math.max(map.capacity()*2, end + size(run)));
+
+            // payload and checksum first, the length last, so a reader never sees a length without its record
+            ByteBuffer buffer = map.duplicate();
+            buffer.position(end + 4);
+            put(buffer, run);
+            int length = buffer.position() - end - 4;
+            ByteBuffer payload = map.duplicate();
+            payload.position(end + 4).limit(end + 4 + length);
+            crc.reset();
+            crc.update(payload);
+            buffer.putInt((int)crc.getValue());
+            map.putInt(end, length);
+            end += length + 8;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void map(int size) throws IOException {
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size); // grows the file, the new part reads as zeros
+    }
+
+    private void fail(IOException e) {
+        synchronized (this) {
+            failed = true;
+        }
+        System.err.println("*** could not write scores to " + file + ": " + e.getMessage() + " ***");
+    }
+
+    private static int size(Run run) { return 4 + 1 + 8 + 4 + 8 + 4 + 4*run.landings.length + 4; }
+
+    private static void put(ByteBuffer buffer, Run run) {
+        buffer.put(RUN).putLong(run.time).putInt(run.level).putLong(run.score).putInt(run.landings.length);
+        for (int ticks : run.landings)
+            buffer.putInt(ticks);
+    }
+
+    // leave room for the length of a record starting at the buffer's position
+    private static void begin(ByteBuffer buffer) { buffer.putInt(0); }
+
+    // fill in the length and append the checksum of the record starting at start
+    private static void finish(ByteBuffer buffer, int start, CRC32C crc) {
+        int length = buffer.position() - start - 4;
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(start + 4).limit(start + 4 + length);
+        crc.reset();
+        crc.update(payload);
+        buffer.putInt(start, length);
+        buffer.putInt((int)crc.getValue());
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    private static long sum(int[] values) {
+        long sum = 0;
+        for (int v : values)
+            sum += v;
+        return sum;
+    }
+}
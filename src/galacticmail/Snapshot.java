@@ -0,0 +1,141 @@
+package galacticmail;
+
+/**
+ * A read-only copy of the game state a Bot gets to see: the rocket, and the loaded moons and asteroids.
+ * Game fills in one Snapshot per tick (see capture), reusing its arrays, so it doesn't allocate once it has
+ * grown to the largest number of entities seen. Entities are listed in EntityStore slot order.
+ * A snapshot only stays valid until the next tick, bots shouldn't hold on to it.
+ */
+public final class Snapshot {
+    private long tick;
+    private int level;
+    private long score;
+    private int remainingMoons;
+    private float worldWidth;
+    private float worldHeight;
+    private World world; // null when the world is the size of the screen, for nearestUnloadedMoons
+
+    private float rocketX, rocketY, rocketVX, rocketVY, rocketAngle;
+    private RocketState rocketState;
+
+    private int moonCount;
+    private float[] moonX = new float[0];
+    private float[] moonY = new float[0];
+    private float[] moonVX = new float[0];
+    private float[] moonVY = new float[0];
+    private float[] moonRadius = new float[0];
+
+    private int asteroidCount;
+    private float[] asteroidX = new float[0];
+    private float[] asteroidY = new float[0];
+    private float[] asteroidVX = new float[0];
+    private float[] asteroidVY = new float[0];
+    private float[] asteroidRadius = new float[0];
+
+    private boolean unloadedChecked; // nearestUnloadedMoons has been worked out for this tick
+    private boolean unloaded;
+    private final float[] unloadedTarget = new float[2];
+
+    // copy the state of game, called by the game (holding its lock) before each tick
+    void capture(Game game) {
+        capture(game.getTicks(), game.getLevel(), game.remainingMoons(), game.getWorld(), game.getPlayer(),
+                game.getMoons(), game.getAsteroids());
+    }
+
+    // copy the state of a game kept somewhere other than a Game, e.g. a RaceClient's copy of the race
+    void capture(long tick, int level, int remainingMoons, World world, Rocket rocket, EntityStore<Moon> moons,
+                 EntityStore<Asteroid> asteroids) {
+        this.tick = tick;
+        this.level = level;
+        this.score = rocket.getScore();
+        this.remainingMoons = remainingMoons;
+        this.world = world;
+        worldWidth = moons.getWorldWidth();
+        worldHeight = moons.getWorldHeight();
+        unloadedChecked = false;
+
+        rocketX = rocket.getX();
+        rocketY = rocket.getY();
+        rocketVX = rocket.getVX();
+        rocketVY = rocket.getVY();
+        rocketAngle = rocket.getAngle();
+        rocketState = rocket.getState();
+
+        moonCount = 0;
+        if (moonX.length < moons.size()) {
+            int n = Math.max(moons.size(), 2*moonX.length);
+            moonX = new float[n];
+            moonY = new float[n];
+            moonVX = new float[n];
+            moonVY = new float[n];
+            moonRadius = new float[n];
+        }
+        for (int i = 0; i < moons.size(); i++) {
+            moonX[moonCount] = moons.x[i];
+            moonY[moonCount] = moons.y[i];
+            moonVX[moonCount] = moons.vx[i];
+            moonVY[moonCount] = moons.vy[i];
+            moonRadius[moonCount] = moons.radius[i];
+            moonCount++;
+        }
+
+        asteroidCount = 0;
+        if (asteroidX.length < asteroids.size()) {
+            int n = Math.max(asteroids.size(), 2*asteroidX.length);
+            asteroidX = new float[n];
+            asteroidY = new float[n];
+            asteroidVX = new float[n];
+            asteroidVY = new float[n];
+            asteroidRadius = new float[n];
+        }
+        for (int i = 0; i < asteroids.size(); i++) {
+            asteroidX[asteroidCount] = asteroids.x[i];
+            asteroidY[asteroidCount] = asteroids.y[i];
+            asteroidVX[asteroidCount] = asteroids.vx[i];
+            asteroidVY[asteroidCount] = asteroids.vy[i];
+            asteroidRadius[asteroidCount] = asteroids.radius[i];
+            asteroidCount++;
+        }
+    }
+
+    public long getTick() { return tick; }
+    public int getLevel() { return level; }
+    public long getScore() { return score; }
+    public int getRemainingMoons() { return remainingMoons; } // including the ones in chunks that aren't loaded
+    public float getWorldWidth() { return worldWidth; }
+    public float getWorldHeight() { return worldHeight; }
+    public boolean isLargeWorld() { return world != null; } // bigger than the screen, see World
+
+    public float getRocketX() { return rocketX; }
+    public float getRocketY() { return rocketY; }
+    public float getRocketVX() { return rocketVX; }
+    public float getRocketVY() { return rocketVY; }
+    public float getRocketAngle() { return rocketAngle; }
+    public RocketState getRocketState() { return rocketState; }
+
+    public int getMoonCount() { return moonCount; }
+    public float getMoonX(int k) { return moonX[k]; }
+    public float getMoonY(int k) { return moonY[k]; }
+    public float getMoonVX(int k) { return moonVX[k]; }
+    public float getMoonVY(int k) { return moonVY[k]; }
+    public float getMoonRadius(int k) { return moonRadius[k]; }
+
+    public int getAsteroidCount() { return asteroidCount; }
+    public float getAsteroidX(int k) { return asteroidX[k]; }
+    public float getAsteroidY(int k) { return asteroidY[k]; }
+    public float getAsteroidVX(int k) { return asteroidVX[k]; }
+    public float getAsteroidVY(int k) { return asteroidVY[k]; }
+    public float getAsteroidRadius(int k) { return asteroidRadius[k]; }
+
+    // in a large world, the center of the nearest chunk with moons that aren't loaded yet, into out[0], out[1].
+    // returns false if there is no such chunk. Worked out on the first call each tick, it looks at every chunk
+    public boolean nearestUnloadedMoons(float[] out) {
+        if (!unloadedChecked) {
+            unloaded = world != null && world.nearestUnloadedMoons(rocketX, rocketY, unloadedTarget);
+            unloadedChecked = true;
+        }
+        out[0] = unloadedTarget[0];
+        out[1] = unloadedTarget[1];
+        return unloaded;
+    }
+}
@@ -0,0 +1,148 @@
+package galacticmail;
+
+import java.util.Arrays;
+
+/**
+ * A uniform-grid broadphase for collideables.
+ * The grid covers the world (the screen, unless given a size) plus the margin an object can occupy before Collideable.wrap teleports it,
+ * so wrapped objects simply move to a different cell. Entities are indexed by their EntityStore slot;
+ * each update only moves the slots whose cell actually changed (including slots that another entity was
+ * swapped into), and drops the slots that are no longer live.
+ * Queries return candidate slots only, the exact circle test is done by the caller.
+ * Cells are only allocated once something is stored in them, so a grid over a large world costs little
+ * where nothing ever goes.
+ * Queries don't modify the grid, so several threads can query at once as long as each uses its own Query.
+ */
+public class SpatialGrid {
+    private final float cellSize;
+    private final float originX;
+    private final float originY;
+    private final int cols;
+    private final int rows;
+
+    private int[][] cells;    // entity indices in each cell, null until first used
+    private int[] cellCounts; // number of entities in each cell
+    private int[] cellOf = new int[0]; // cell each entity is stored in, -1 if not in the grid
+    private int[] slotOf = new int[0]; // position of each entity inside its cell
+    private int tracked = 0; // slots that may be in the grid
+
+    private Query defaultQuery = new Query();
+
+    public SpatialGrid(float cellSize, float margin) {
+        this(cellSize, margin, Game.WIDTH, Game.HEIGHT);
+    }
+
+    public SpatialGrid(float cellSize, float margin, float width, float height) {
+        this.cellSize = cellSize;
+        this.originX = -margin;
+        this.originY = -margin;
+        this.cols = (int)Math.ceil((width + 2*margin)/cellSize) + 1;
+        this.rows = (int)Math.ceil((height + 2*margin)/cellSize) + 1;
+        this.cells = new int[cols*rows][];
+        this.cellCounts = new int[cols*rows];
+    }
+
+    // the collision radius used by Collideable.collide
+    public static float radius(Collideable c) {
+        return Math.max(c.getWidth(), c.getHeight())/2 + 1.0f;
+    }
+
+    // empty the grid, e.g. when the store is cleared for a new level
+    public void clear() {
+        Arrays.fill(cellCounts, 0);
+        Arrays.fill(cellOf, -1);
+        tracked = 0;
+    }
+
+    // bring the grid in sync with the store. Only entities that changed cell are moved.
+    public void update(EntityStore<?> store) {
+        int end = Math.max(store.size(), tracked);
+        tracked = store.size();
+        if (cellOf.length < end) {
+            int old = cellOf.length;
+            cellOf = Arrays.copyOf(cellOf, Math.max(end, old*2));
+            slotOf = Arrays.copyOf(slotOf, cellOf.length);
+            Arrays.fill(cellOf, old, cellOf.length, -1);
+        }
+
+        for (int i = 0; i < end; i++) {
+            int cell = i < tracked ? cellIndex(store.x[i], store.y[i]) : -1; // slots past size were removed
+
+            if (cell != cellOf[i]) {
+                if (cellOf[i] >= 0)
+                    remove(i);
+                if (cell >= 0)
+                    insert(i, cell);
+                else
+                    cellOf[i] = -1;
+            }
+        }
+    }
+
+    // collect the slots of all entities that could be within reach of (x, y), sorted ascending.
+    // returns the number of candidates, read them back with candidate(k).
+    public int query(float x, float y, float reach) { return query(x, y, reach, defaultQuery); }
+
+    public int candidate(int k) { return defaultQuery.candidates[k]; }
+
+    // same as query(x, y, reach) but the candidates are collected into the given Query
+    public int query(float x, float y, float reach, Query query) {
+        int c0 = col(x - reach), c1 = col(x + reach);
+        int r0 = row(y - reach), r1 = row(y + reach);
+        int count = 0;
+
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r*cols + c;
+                int[] bucket = cells[cell];
+
+                for (int k = 0; k < cellCounts[cell]; k++) {
+                    if (count == query.candidates.length)
+                        query.candidates = Arrays.copyOf(query.candidates, count*2);
+                    query.candidates[count++] = bucket[k];
+                }
+            }
+        }
+
+        Arrays.sort(query.candidates, 0, count); // keep the brute-force iteration order
+        query.count = count;
+        return count;
+    }
+
+    private void insert(int i, int cell) {
+        if (cells[cell] == null)
+            cells[cell] = new int[4];
+        else if (cellCounts[cell] == cells[cell].length)
+            cells[cell] = Arrays.copyOf(cells[cell], cells[cell].length*2);
+
+        cellOf[i] = cell;
+        slotOf[i] = cellCounts[cell];
+        cells[cell][cellCounts[cell]++] = i;
+    }
+
+    // swap-remove the entity from its cell
+    private void remove(int i) {
+        int cell = cellOf[i];
+        int last = cells[cell][--cellCounts[cell]];
+
+        cells[cell][slotOf[i]] = last;
+        slotOf[last] = slotOf[i];
+    }
+
+    private int cellIndex(float x, float y) { return row(y)*cols + col(x); }
+
+    // clamped so that anything outside the covered area still lands in an edge cell
+    private int col(float x) { return Math.min(cols - 1, Math.max(0, (int)Math.floor((x - originX)/cellSize))); }
+    private int row(float y) { return Math.min(rows - 1, Math.max(0, (int)Math.floor((y - originY)/cellSize))); }
+
+    /**
+     * The results of a query, one per querying thread.
+     */
+    public static class Query {
+        private int[] candidates = new int[16];
+        private int count = 0;
+
+        public int size() { return count; }
+        public int candidate(int k) { return candidates[k]; }
+    }
+}
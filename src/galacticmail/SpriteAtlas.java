@@ -0,0 +1,104 @@
+package galacticmail;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs sprites (from the TextureCache) into a few large pages, so SpriteBatch can draw a whole frame's sprites
+ * as regions of the same image instead of switching source image on every draw.
+ * A sprite is copied in the first time region() sees it, and stays for the life of the process.
+ * Pages are filled shelf by shelf: left to right along the current shelf, then a new shelf below it, then a new page.
+ * region() may be called from any thread, LevelLayout packs the next level's sprites on its background thread.
+ * The region arrays are read without locking by SpriteBatch. That's safe for any region whose index reached the
+ * reader through the game lock (or a Thread.join), since the region was written before its index was handed out,
+ * and the arrays are volatile so that a reader picking up arrays grown since then also sees what was copied into them.
+ */
+public final class SpriteAtlas {
+    public static final int PAGE_SIZE = 2048;
+    private static final int PADDING = 1; // empty pixels between regions
+
+    private static final Map<BufferedImage, Integer> regions = new IdentityHashMap<>();
+    private static final List<BufferedImage> pages = new ArrayList<>();
+    private static int shelfX = PAGE_SIZE; // where the next region goes on the current page, full to start a page
+    private static int shelfY = 0;
+    private static int shelfHeight = 0;
+
+    // by region
+    static volatile int[] page = new int[256];
+    static volatile int[] x = new int[256];
+    static volatile int[] y = new int[256];
+    static volatile int[] width = new int[256];
+    static volatile int[] height = new int[256];
+    private static int count = 0;
+
+    private SpriteAtlas() { }
+
+    // the region holding sprite, copying it in if it isn't in the atlas yet
+    public static synchronized int region(BufferedImage sprite) {
+        Integer known = regions.get(sprite);
+        if (known != null)
+            return known;
+
+        int w = sprite.getWidth(), h = sprite.getHeight();
+        if (w > PAGE_SIZE || h > PAGE_SIZE)
+            throw new IllegalArgumentException("sprite too big for the atlas: " + w + "x" + h);
+
+        if (shelfX + w > PAGE_SIZE) { // next shelf
+            shelfX = 0;
+            shelfY += shelfHeight + PADDING;
+            shelfHeight = 0;
+        }
+        if (pages.isEmpty() || shelfY + h > PAGE_SIZE) { // next page
+            pages.add(createPage());
+            shelfX = 0;
+            shelfY = 0;
+            shelfHeight = 0;
+        }
+
+        Graphics2D g = pages.get(pages.size() - 1).createGraphics();
+        g.setComposite(AlphaComposite.Src); // copy the pixels exactly, not blended over the empty page
+        g.drawImage(sprite, shelfX, shelfY, null);
+        g.dispose();
+
+        if (count == x.length) {
+            page = Arrays.copyOf(page, count*2);
+            x = Arrays.copyOf(x, count*2);
+            y = Arrays.copyOf(y, count*2);
+            width = Arrays.copyOf(width, count*2);
+            height = Arrays.copyOf(height, count*2);
+        }
+        page[count] = pages.size() - 1;
+        x[count] = shelfX;
+        y[count] = shelfY;
+        width[count] = w;
+        height[count] = h;
+        regions.put(sprite, count);
+
+        shelfX += w + PADDING;
+        shelfHeight = Math.max(shelfHeight, h);
+        return count++;
+    }
+
+    public static synchronized BufferedImage page(int index) { return pages.get(index); }
+    public static synchronized int pages() { return pages.size(); }
+    public static synchronized int size() { return count; }
+
+    // same format as the TextureCache's images, so drawing a region gives the same pixels as drawing the sprite
+    private static BufferedImage createPage() {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(PAGE_SIZE, PAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(PAGE_SIZE, PAGE_SIZE, Transparency.TRANSLUCENT);
+    }
+}
@@ -0,0 +1,71 @@
+package galacticmail;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Draws every sprite of a game (asteroids, then moons, then the rockets still in it, as in Game.render) as a region
+ * of the SpriteAtlas, straight from the EntityStore arrays.
+ * All the sprites come out of one atlas page (or very few), so Java2D keeps blitting from the same source image
+ * instead of validating a new one on every draw, and there is no call into each entity per sprite.
+ * Sprites are drawn in the same order as the per-object render methods rather than sorted by region, since
+ * reordering would change which sprite ends up on top where they overlap. The output is the same, pixel for pixel.
+ * Regions are resolved the first time an entity is drawn (see Asteroid.region), so nothing allocates once every
+ * frame in use is in the atlas.
+ */
+public class SpriteBatch {
+    private BufferedImage[] pages = new BufferedImage[0]; // local copy of the atlas pages
+
+    // draw the game's sprites with positions interpolated alpha (0 -> 1) of the way from the last tick, through camera
+    public void render(Graphics2D g, Game game, float alpha, Camera camera) {
+        EntityStore<Asteroid> asteroids = game.getAsteroids();
+        for (int i = 0; i < asteroids.size(); i++) {
+            Asteroid asteroid = asteroids.get(i);
+            int region = asteroid.region();
+            int offset = asteroid.getSpriteOffset();
+            float rx = camera.screenX(asteroids.prevX[i], asteroids.x[i], alpha);
+            float ry = camera.screenY(asteroids.prevY[i], asteroids.y[i], alpha);
+            draw(g, region, (int)rx + offset, (int)ry + offset);
+        }
+
+        EntityStore<Moon> moons = game.getMoons();
+        for (int i = 0; i < moons.size(); i++) {
+            int region = moons.get(i).region();
+            float rx = camera.screenX(moons.prevX[i], moons.x[i], alpha);
+            float ry = camera.screenY(moons.prevY[i], moons.y[i], alpha);
+            draw(g, region, (int)rx, (int)ry);
+        }
+
+        for (int r = 0; r < game.getRacerCount(); r++) {
+            Rocket rocket = game.getRacer(r);
+            if (rocket.isCrashed())
+                continue;
+
+            int region = rocket.region();
+            int offset = rocket.spriteOffset();
+            float rx = camera.screenX(rocket.getPrevX(), rocket.getX(), alpha);
+            float ry = camera.screenY(rocket.getPrevY(), rocket.getY(), alpha);
+            draw(g, region, (int)rx + offset, (int)ry + offset);
+        }
+    }
+
+    private void draw(Graphics2D g, int region, int dx, int dy) {
+        int page = SpriteAtlas.page[region];
+        if (page >= pages.length)
+            syncPages();
+
+        int sx = SpriteAtlas.x[region], sy = SpriteAtlas.y[region];
+        int w = SpriteAtlas.width[region], h = SpriteAtlas.height[region];
+        g.drawImage(pages[page], dx, dy, dx + w, dy + h, sx, sy, sx + w, sy + h, null);
+    }
+
+    // pick up pages added to the atlas since the last draw
+    private void syncPages() {
+        int n = SpriteAtlas.pages();
+        int old = pages.length;
+        pages = Arrays.copyOf(pages, n);
+        for (int p = old; p < n; p++)
+            pages[p] = SpriteAtlas.page(p);
+    }
+}
@@ -0,0 +1,138 @@
+package galacticmail;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches textures scaled to the size they are drawn at, so sprites are only ever scaled once.
+ * Images are created with createCompatibleImage so they are in the screen's native (accelerated) format.
+ * Rotated sprites are cached too, in ROTATIONS steps around the circle, so they can be drawn without a transform.
+ * Keys compare source images by identity: a texture loaded twice is cached twice.
+ */
+public final class TextureCache {
+    public static final int ROTATIONS = 360; // one rotated frame per degree
+
+    private static final Map<Key, BufferedImage> cache = new ConcurrentHashMap<>();
+
+    private TextureCache() { }
+
+    // the whole texture at its own size, converted to the screen format
+    public static BufferedImage get(BufferedImage source) {
+        return get(source, source.getWidth(), source.getHeight());
+    }
+
+    // the whole texture scaled to width x height
+    public static BufferedImage get(BufferedImage source, int width, int height) {
+        return get(source, 0, 0, source.getWidth(), source.getHeight(), width, height);
+    }
+
+    // the (sx, sy, sw, sh) region of a sprite sheet scaled to width x height
+    public static BufferedImage get(BufferedImage source, int sx, int sy, int sw, int sh, int width, int height) {
+        return cache.computeIfAbsent(new Key(source, sx, sy, sw, sh, width, height, -1),
+                k -> scale(source, sx, sy, sw, sh, width, height));
+    }
+
+    // the texture rotated around its center by rotation/ROTATIONS of a full turn.
+    // The frame is a square big enough for any rotation with the texture center in its middle.
+    public static BufferedImage rotated(BufferedImage source, int rotation) {
+        int w = source.getWidth(), h = source.getHeight();
+        return cache.computeIfAbsent(new Key(source, 0, 0, w, h, w, h, rotation), k -> rotate(source, rotation));
+    }
+
+    // which rotated frame to use for an angle (in radians)
+    public static int rotation(double radians) {
+        int r = (int)Math.round(radians / (2*Math.PI) * ROTATIONS) % ROTATIONS;
+        return r < 0 ? r + ROTATIONS : r;
+    }
+
+    // size of the square frame returned by rotated()
+    public static int rotatedSize(BufferedImage source) {
+        return (int)Math.ceil(Math.hypot(source.getWidth(), source.getHeight()));
+    }
+
+    public static int size() { return cache.size(); }
+
+    public static void clear() { cache.clear(); }
+
+    private static BufferedImage scale(BufferedImage source, int sx, int sy, int sw, int sh, int width, int height) {
+        BufferedImage image = createImage(Math.max(1, width), Math.max(1, height), source.getTransparency());
+        Graphics2D g = image.createGraphics();
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(source, 0, 0, width, height, sx, sy, sx + sw, sy + sh, null);
+        g.dispose();
+
+        return image;
+    }
+
+    private static BufferedImage rotate(BufferedImage source, int rotation) {
+        int size = rotatedSize(source);
+        BufferedImage image = createImage(size, size, Transparency.TRANSLUCENT);
+        Graphics2D g = image.createGraphics();
+
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g.rotate(2*Math.PI*rotation/ROTATIONS, size/2.0, size/2.0);
+        g.drawImage(source, (size - source.getWidth())/2, (size - source.getHeight())/2, null);
+        g.dispose();
+
+        return image;
+    }
+
+    // use the screen's image format if we have one, plain ARGB when running headless
+    private static BufferedImage createImage(int width, int height, int transparency) {
+        if (GraphicsEnvironment.isHeadless())
+            return new BufferedImage(width, height, transparency == Transparency.OPAQUE ?
+                    BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+
+        GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment()
+                .getDefaultScreenDevice().getDefaultConfiguration();
+        return config.createCompatibleImage(width, height, transparency);
+    }
+
+    private static final class Key {
+        final BufferedImage source;
+        final int sx, sy, sw, sh, width, height;
+        final int rotation; // -1 if not rotated
+
+        Key(BufferedImage source, int sx, int sy, int sw, int sh, int width, int height, int rotation) {
+            this.source = source;
+            this.sx = sx;
+            this.sy = sy;
+            this.sw = sw;
+            this.sh = sh;
+            this.width = width;
+            this.height = height;
+            this.rotation = rotation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+
+            Key k = (Key)o;
+            return source == k.source && sx == k.sx && sy == k.sy && sw == k.sw && sh == k.sh
+                    && width == k.width && height == k.height && rotation == k.rotation;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = System.identityHashCode(source);
+            h = 31*h + sx;
+            h = 31*h + sy;
+            h = 31*h + sw;
+            h = 31*h + sh;
+            h = 31*h + width;
+            h = 31*h + height;
+            return 31*h + rotation;
+        }
+    }
+}
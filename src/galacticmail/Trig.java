@@ -0,0 +1,49 @@
+package galacticmail;
+
+/**
+ * Sine and cosine of angles in degrees, used for entity headings.
+ * With table false these are exactly Math.sin/Math.cos(Math.toRadians(degrees)). With table true they come from a
+ * fixed-resolution table with linear interpolation instead (under 1e-6 error, see HeadlessEngine --trig-check).
+ * Which one is used is a setting of each game (see Game.setTrigTable), so games using either can run side by side.
+ * Headings are only recomputed when an angle changes, so the table mostly matters for many rotating entities.
+ */
+public final class Trig {
+    private static final int TABLE_SIZE = 4096; // entries per full turn
+    private static final double STEPS_PER_DEGREE = TABLE_SIZE/360.0;
+    private static final double[] SIN = new double[TABLE_SIZE + 1];
+
+    static {
+        for (int i = 0; i <= TABLE_SIZE; i++)
+            SIN[i] = Math.sin(2*Math.PI*i/TABLE_SIZE);
+    }
+
+    private Trig() { }
+
+    public static double sin(double degrees, boolean table) {
+        return table ? lookup(degrees) : Math.sin(Math.toRadians(degrees));
+    }
+
+    public static double cos(double degrees, boolean table) {
+        return table ? lookup(degrees + 90) : Math.cos(Math.toRadians(degrees));
+    }
+
+    // interpolated sine of degrees
+    private static double lookup(double degrees) {
+        double steps = degrees*STEPS_PER_DEGREE;
+        double floor = Math.floor(steps);
+        int i = (int)((long)floor & (TABLE_SIZE - 1));
+        double t = steps - floor;
+        return SIN[i] + (SIN[i + 1] - SIN[i])*t;
+    }
+
+    // the largest difference between the table and Math over a sweep of angles
+    public static double maxTableError() {
+        double max = 0;
+        for (int i = -3600000; i <= 3600000; i++) {
+            double degrees = i/1000.0;
+            max = Math.max(max, Math.abs(lookup(degrees) - Math.sin(Math.toRadians(degrees))));
+            max = Math.max(max, Math.abs(lookup(degrees + 90) - Math.cos(Math.toRadians(degrees))));
+        }
+        return max;
+    }
+}
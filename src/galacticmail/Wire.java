@@ -0,0 +1,93 @@
+package galacticmail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * The race protocol between RaceServer and RaceClient: message types, and how numbers are packed into them.
+ * Every message is framed as an int length followed by that many bytes, the first of which is the message type.
+ * Most numbers are varints (7 bits per byte, low bits first), signed ones zigzag encoded first so that small
+ * negative numbers stay short too.
+ */
+final class Wire {
+    // server to client
+    static final byte WELCOME = 1; // byte racer number, byte racers, int world width, int world height, varint tick rate
+    static final byte STATE = 2;   // once a tick, see RaceServer
+    // client to server
+    static final byte INPUT = 3;   // varint sequence number, zigzag rotation in 1/ROTATION_SCALE degrees, byte takeoff
+
+    static final float ROTATION_SCALE = 64;
+    static final int MAX_FRAME = 1 << 24;
+
+    private Wire() { }
+
+    static void putVarint(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte)(value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte)value);
+    }
+
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long)(b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    static void putSigned(ByteBuffer out, long value) { putVarint(out, value << 1 ^ value >> 63); }
+
+    static long getSigned(ByteBuffer in) {
+        long value = getVarint(in);
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    // a buffer at least this big, keeping what was in the old one
+    static ByteBuffer ensure(ByteBuffer buffer, int free) {
+        if (buffer.remaining() >= free)
+            return buffer;
+
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(buffer.capacity()*2, buffer.position() + free));
+        buffer.flip();
+        return bigger.put(buffer);
+    }
+
+    // start a frame at the buffer's position, finished by end()
+    static int begin(ByteBuffer out, byte type) {
+        int start = out.position();
+        out.putInt(0);
+        out.put(type);
+        return start;
+    }
+
+    static void end(ByteBuffer out, int start) { out.putInt(start, out.position() - start - 4); }
+
+    // read one whole frame, blocking, into in (grown if needed), returning the buffer holding it
+    static ByteBuffer read(SocketChannel channel, ByteBuffer in) throws IOException {
+        in.clear().limit(4);
+        fill(channel, in);
+        int length = in.getInt(0);
+        if (length <= 0 || length > MAX_FRAME)
+            throw new IOException("bad frame length " + length);
+
+        if (in.capacity() < length)
+            in = ByteBuffer.allocate(Math.max(length, in.capacity()*2));
+        in.clear().limit(length);
+        fill(channel, in);
+        in.flip();
+        return in;
+    }
+
+    private static void fill(SocketChannel channel, ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            if (channel.read(in) < 0)
+                throw new EOFException("connection closed");
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package galacticmail;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A world larger than the screen, split into square chunks that are generated and loaded as the camera gets near.
+ * Only the chunks around the view are loaded: their moons and asteroids are in the game's EntityStores, and
+ * everything else is saved here as plain numbers, with its physics suspended until the chunk is loaded again.
+ * So a tick costs about the same however big the world is.
+ *
+ * Each chunk is filled the first time it is loaded, from its own seed, so chunks come out the same whatever order
+ * they're visited in. Candidate positions are Poisson-disc samples (Bridson's algorithm), which keeps everything at
+ * least SPACING apart without the gaps and clumps of uniform random placement. Samples stay SPACING/2 away from the
+ * chunk's edges, so samples of neighbouring chunks are SPACING apart as well.
+ * The level's moons are assigned to chunks up front, the rest of the samples become asteroids with a chance that
+ * grows with the level.
+ */
+public class World {
+    public static final int CHUNK = 640;  // world sizes are a multiple of this
+    private static final float SPACING = 150; // minimum distance between generated entities
+    private static final int ATTEMPTS = 30;   // candidates tried around each sample before giving up on it
+    private static final int MAX_MOONS_PER_CHUNK = 3;
+    private static final float CLEAR = 250;   // no asteroids are generated this close to where the rocket starts
+    private static final int SWEEP_TICKS = 30; // how often entities that drifted out of the loaded chunks are saved
+    private static final int MOON_STRIDE = 6;  // saved moon: x, y, vx, vy, frame, scale
+    private static final int ASTEROID_STRIDE = 5; // saved asteroid: x, y, vx, vy, angle
+
+    private final int width;
+    private final int height;
+    private final int cols; // chunks across
+    private final int rows;
+
+    private long seed;
+    private int level;
+    private float startX; // where the rocket starts
+    private float startY;
+    private int remainingMoons; // loaded or not, the level is won when this gets to 0
+    private final Random chunkRng = new Random(); // reseeded for every chunk
+
+    private final boolean[] generated;
+    private final boolean[] loaded;
+    private final byte[] newMoons; // moons assigned to each chunk that hasn't been generated yet
+    private final float[][] savedMoons; // by chunk, null until something is saved there
+    private final float[][] savedAsteroids;
+    private final int[] savedMoonCount;
+    private final int[] savedAsteroidCount;
+
+    // chunks loaded right now: cols c0 .. c0+ncols-1, rows r0 .. r0+nrows-1 (wrapping around)
+    private int c0 = Integer.MIN_VALUE;
+    private int r0 = Integer.MIN_VALUE;
+    private int ncols = 0;
+    private int nrows = 0;
+    private int sinceSweep = 0;
+
+    // scratch space for Poisson-disc sampling, see sample()
+    private final int discCols;
+    private final int[] disc; // sample in each cell of the background grid, -1 if none
+    private final float[] sampleX;
+    private final float[] sampleY;
+    private final int[] open; // samples that may still have room around them
+
+    public World(int width, int height) {
+        if (width % CHUNK != 0 || height % CHUNK != 0 || width < Game.WIDTH || height < Game.HEIGHT)
+            throw new IllegalArgumentException("world must be a multiple of " + CHUNK + " and at least the screen size: " +
+                    width + "x" + height);
+
+        this.width = width;
+        this.height = height;
+        this.cols = width/CHUNK;
+        this.rows = height/CHUNK;
+
+        int chunks = cols*rows;
+        generated = new boolean[chunks];
+        loaded = new boolean[chunks];
+        newMoons = new byte[chunks];
+        savedMoons = new float[chunks][];
+        savedAsteroids = new float[chunks][];
+        savedMoonCount = new int[chunks];
+        savedAsteroidCount = new int[chunks];
+
+        discCols = (int)Math.ceil((CHUNK - SPACING)/(SPACING/Math.sqrt(2)));
+        disc = new int[discCols*discCols];
+        sampleX = new float[disc.length];
+        sampleY = new float[disc.length];
+        open = new int[disc.length];
+    }
+
+    // the smallest world size that holds the given number of screens
+    public static int size(int screens, int screenSize) {
+        return (screens*screenSize + CHUNK - 1)/CHUNK*CHUNK;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getRemainingMoons() { return remainingMoons; }
+
+    // a loaded moon was delivered
+    public void moonDelivered() { remainingMoons--; }
+
+    // start a new level: forget every chunk and assign the level's moons to chunks.
+    // nothing is loaded until the first stream()
+    public void reset(long seed, int level, int moons, float startX, float startY) {
+        this.seed = seed;
+        this.level = level;
+        this.startX = startX;
+        this.startY = startY;
+        Arrays.fill(generated, false);
+        Arrays.fill(loaded, false);
+        Arrays.fill(newMoons, (byte)0);
+        Arrays.fill(savedMoonCount, 0);
+        Arrays.fill(savedAsteroidCount, 0);
+        c0 = r0 = Integer.MIN_VALUE;
+        ncols = nrows = 0;
+        sinceSweep = 0;
+
+        remainingMoons = Math.min(moons, MAX_MOONS_PER_CHUNK*cols*rows);
+        chunkRng.setSeed(seed);
+        for (int m = 0; m < remainingMoons; m++) {
+            int chunk;
+            do {
+                chunk = chunkRng.nextInt(cols*rows);
+            } while (newMoons[chunk] == MAX_MOONS_PER_CHUNK);
+            newMoons[chunk]++;
+        }
+    }
+
+    // true if (x, y) is in a loaded chunk
+    public boolean isLoaded(float x, float y) { return loaded[chunkAt(x, y)]; }
+
+    // load the chunks around the camera's view and unload the rest, saving any entity that is outside the
+    // loaded chunks. Called every tick, but only does work when the camera crossed into a new chunk or every
+    // SWEEP_TICKS for entities that drifted away on their own
+    public void stream(Camera camera, EntityStore<Moon> moons, EntityStore<Asteroid> asteroids) {
+        // the view plus one chunk on every side
+        int nc0 = (int)Math.floor(camera.getX()/CHUNK) - 1;
+        int nr0 = (int)Math.floor(camera.getY()/CHUNK) - 1;
+        int nncols = Math.min(cols, (int)Math.floor((camera.getX() + Game.WIDTH)/CHUNK) + 1 - nc0 + 1);
+        int nnrows = Math.min(rows, (int)Math.floor((camera.getY() + Game.HEIGHT)/CHUNK) + 1 - nr0 + 1);
+
+        boolean moved = nc0 != c0 || nr0 != r0 || nncols != ncols || nnrows != nrows;
+        if (!moved && ++sinceSweep < SWEEP_TICKS)
+            return;
+        sinceSweep = 0;
+
+        if (moved) {
+            mark(c0, r0, ncols, nrows, false);
+            c0 = nc0;
+            r0 = nr0;
+            ncols = nncols;
+            nrows = nnrows;
+            mark(c0, r0, ncols, nrows, true);
+        }
+
+        // save everything outside the loaded chunks, back to front since removing moves the last entity into the slot
+        for (int i = moons.size() - 1; i >= 0; i--) {
+            int chunk = chunkAt(moons.x[i], moons.y[i]);
+            if (!loaded[chunk]) {
+                saveMoon(chunk, moons, i);
+                moons.remove(i);
+            }
+        }
+        for (int i = asteroids.size() - 1; i >= 0; i--) {
+            int chunk = chunkAt(asteroids.x[i], asteroids.y[i]);
+            if (!loaded[chunk]) {
+                saveAsteroid(chunk, asteroids, i);
+                asteroids.remove(i);
+            }
+        }
+
+        // and bring back whatever is saved in the loaded chunks
+        if (moved) {
+            for (int r = 0; r < nrows; r++) {
+                for (int c = 0; c < ncols; c++)
+                    load(chunk(c0 + c, r0 + r), moons, asteroids);
+            }
+        }
+    }
+
+    // set the loaded flag of a range of chunks
+    private void mark(int c0, int r0, int ncols, int nrows, boolean value) {
+        for (int r = 0; r < nrows; r++) {
+            for (int c = 0; c < ncols; c++)
+                loaded[chunk(c0 + c, r0 + r)] = value;
+        }
+    }
+
+    private void load(int chunk, EntityStore<Moon> moons, EntityStore<Asteroid> asteroids) {
+        if (!generated[chunk]) {
+            generate(chunk, moons, asteroids);
+            generated[chunk] = true;
+            return;
+        }
+
+        Assets assets = Assets.get();
+        float[] m = savedMoons[chunk];
+        for (int k = 0; k < savedMoonCount[chunk]; k++) {
+            int at = k*MOON_STRIDE;
+            Moon.restore(moons, assets.moon, m[at], m[at + 1], m[at + 2], m[at + 3], (int)m[at + 4], m[at + 5], 64, 64, 8);
+        }
+        savedMoonCount[chunk] = 0;
+
+        float[] a = savedAsteroids[chunk];
+        for (int k = 0; k < savedAsteroidCount[chunk]; k++) {
+            int at = k*ASTEROID_STRIDE;
+            Asteroid.restore(asteroids, assets.asteroid, a[at], a[at + 1], a[at + 2], a[at + 3], a[at + 4]);
+        }
+        savedAsteroidCount[chunk] = 0;
+    }
+
+    // fill a chunk for the first time, from its own seed
+    private void generate(int chunk, EntityStore<Moon> moons, EntityStore<Asteroid> asteroids) {
+        Assets assets = Assets.get();
+        chunkRng.setSeed(seed ^ (chunk + 1)*0x9e3779b97f4a7c15L);
+        float left = (chunk % cols)*CHUNK + SPACING/2;
+        float top = (chunk/cols)*CHUNK + SPACING/2;
+        float asteroidChance = Math.min(0.9f, 0.35f + 0.05f*level);
+
+        int samples = sample(chunkRng);
+        int newMoons = this.newMoons[chunk];
+        for (int k = 0; k < samples; k++) {
+            float x = left + sampleX[k];
+            float y = top + sampleY[k];
+
+            if (newMoons > 0) {
+                Moon.spawn(moons, chunkRng, assets.moon, x, y, 8, 64, 64, 8);
+                newMoons--;
+            } else if (chunkRng.nextFloat() < asteroidChance && !nearStart(x, y)) {
+                Asteroid.spawn(asteroids, chunkRng, assets.asteroid, x, y);
+            }
+        }
+        remainingMoons -= newMoons; // more moons than samples, can't happen with the current spacing but just in case
+        this.newMoons[chunk] = 0;
+    }
+
+    private boolean nearStart(float x, float y) {
+        float dx = delta(x - startX, width);
+        float dy = delta(y - startY, height);
+        return dx*dx + dy*dy < CLEAR*CLEAR;
+    }
+
+    // Poisson-disc samples in the square [0, CHUNK - SPACING), into sampleX/sampleY. returns the number of samples
+    private int sample(Random rng) {
+        float size = CHUNK - SPACING;
+        float cell = size/discCols;
+        Arrays.fill(disc, -1);
+
+        int count = 0;
+        int openCount = 0;
+        sampleX[0] = rng.nextFloat()*size;
+        sampleY[0] = rng.nextFloat()*size;
+        disc[(int)(sampleY[0]/cell)*discCols + (int)(sampleX[0]/cell)] = count;
+        open[openCount++] = count++;
+
+        while (openCount > 0) {
+            int o = rng.nextInt(openCount);
+            int s = open[o];
+            boolean placed = false;
+
+            for (int attempt = 0; attempt < ATTEMPTS && !placed; attempt++) {
+                // a candidate between SPACING and 2*SPACING away from the sample, in a direction picked
+                // from the unit disc (cheaper than going through sin and cos)
+                float ux, uy, length;
+                do {
+                    ux = rng.nextFloat()*2 - 1;
+                    uy = rng.nextFloat()*2 - 1;
+                    length = ux*ux + uy*uy;
+                } while (length > 1 || length < 1e-4f);
+                float d = SPACING*(1 + rng.nextFloat())/(float)Math.sqrt(length);
+                float x = sampleX[s] + d*ux;
+                float y = sampleY[s] + d*uy;
+                if (x < 0 || x >= size || y < 0 || y >= size || !fits(x, y, cell))
+                    continue;
+
+                sampleX[count] = x;
+                sampleY[count] = y;
+                disc[(int)(y/cell)*discCols + (int)(x/cell)] = count;
+                open[openCount++] = count++;
+                placed = true;
+            }
+
+            if (!placed)
+                open[o] = open[--openCount];
+        }
+        return count;
+    }
+
+    // true if no sample is within SPACING of (x, y). cells are smaller than SPACING/sqrt(2), so checking
+    // the cells up to 2 away is enough
+    private boolean fits(float x, float y, float cell) {
+        int cx = (int)(x/cell);
+        int cy = (int)(y/cell);
+
+        for (int r = Math.max(0, cy - 2); r <= Math.min(discCols - 1, cy + 2); r++) {
+            for (int c = Math.max(0, cx - 2); c <= Math.min(discCols - 1, cx + 2); c++) {
+                int s = disc[r*discCols + c];
+                if (s < 0)
+                    continue;
+
+                float dx = sampleX[s] - x;
+                float dy = sampleY[s] - y;
+                if (dx*dx + dy*dy < SPACING*SPACING)
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void saveMoon(int chunk, EntityStore<Moon> moons, int i) {
+        int at = savedMoonCount[chunk]++*MOON_STRIDE;
+        float[] m = savedMoons[chunk] = ensure(savedMoons[chunk], at + MOON_STRIDE);
+        Moon moon = moons.get(i);
+        m[at] = moons.x[i];
+        m[at + 1] = moons.y[i];
+        m[at + 2] = moons.vx[i];
+        m[at + 3] = moons.vy[i];
+        m[at + 4] = moon.getFrame();
+        m[at + 5] = moon.getScale();
+    }
+
+    private void saveAsteroid(int chunk, EntityStore<Asteroid> asteroids, int i) {
+        int at = savedAsteroidCount[chunk]++*ASTEROID_STRIDE;
+        float[] a = savedAsteroids[chunk] = ensure(savedAsteroids[chunk], at + ASTEROID_STRIDE);
+        a[at] = asteroids.x[i];
+        a[at + 1] = asteroids.y[i];
+        a[at + 2] = asteroids.vx[i];
+        a[at + 3] = asteroids.vy[i];
+        a[at + 4] = asteroids.get(i).getAngle();
+    }
+
+    private static float[] ensure(float[] a, int length) {
+        if (a == null)
+            return new float[Math.max(length, 4*MOON_STRIDE)];
+        return a.length >= length ? a : Arrays.copyOf(a, Math.max(length, a.length*2));
+    }
+
+    // center of the nearest chunk to (x, y) that holds moons that aren't loaded, into out[0], out[1].
+    // returns false if every remaining moon is loaded. Looks at every chunk, meant for the headless autopilot
+    public boolean nearestUnloadedMoons(float x, float y, float[] out) {
+        float best = Float.MAX_VALUE;
+        for (int chunk = 0; chunk < cols*rows; chunk++) {
+            if (newMoons[chunk] == 0 && savedMoonCount[chunk] == 0)
+                continue;
+
+            float cx = (chunk % cols)*CHUNK + CHUNK/2;
+            float cy = (chunk/cols)*CHUNK + CHUNK/2;
+            float dx = delta(cx - x, width);
+            float dy = delta(cy - y, height);
+            if (dx*dx + dy*dy < best) {
+                best = dx*dx + dy*dy;
+                out[0] = cx;
+                out[1] = cy;
+            }
+        }
+        return best != Float.MAX_VALUE;
+    }
+
+    // mix the unloaded part of the world into a hash (see Game.stateHash)
+    public long hash(long h) {
+        h = Game.hash(h, remainingMoons);
+        for (int chunk = 0; chunk < cols*rows; chunk++) {
+            h = Game.hash(h, savedMoonCount[chunk]);
+            h = Game.hash(h, savedAsteroidCount[chunk]);
+            for (int k = 0; k < savedMoonCount[chunk]*MOON_STRIDE; k++)
+                h = Game.hash(h, Float.floatToIntBits(savedMoons[chunk][k]));
+            for (int k = 0; k < savedAsteroidCount[chunk]*ASTEROID_STRIDE; k++)
+                h = Game.hash(h, Float.floatToIntBits(savedAsteroids[chunk][k]));
+        }
+        return h;
+    }
+
+    // the shortest way from one coordinate to another around a world of size span
+    public static float delta(float d, float span) {
+        return d - span*Math.round(d/span);
+    }
+
+    // chunk holding (x, y), positions just off the world's edges (before they wrap) count as the other side
+    private int chunkAt(float x, float y) {
+        return chunk((int)Math.floor(x/CHUNK), (int)Math.floor(y/CHUNK));
+    }
+
+    private int chunk(int c, int r) {
+        return Math.floorMod(r, rows)*cols + Math.floorMod(c, cols);
+    }
+}